@@ -6,4 +6,6 @@ public final class DaveConstants {
     public static final int INIT_TRANSITION_ID = 0;
     public static final int DISABLED_PROTOCOL_VERSION = 0;
     public static final long MLS_NEW_GROUP_EXPECTED_EPOCH = 1L;
+    // Trailer of every encrypted frame
+    public static final short MAGIC_MARKER = (short) 0xFAFA;
 }
@@ -2,82 +2,326 @@ package club.minnced.discord.jdave;
 
 import static club.minnced.discord.jdave.ffi.LibDave.*;
 
+import club.minnced.discord.jdave.DaveFrameClassifier.DaveFrameType;
+import club.minnced.discord.jdave.ffi.LibDave;
 import club.minnced.discord.jdave.ffi.LibDaveDecryptorBinding;
-import java.lang.foreign.Arena;
+import club.minnced.discord.jdave.utils.DaveBufferPool;
 import java.lang.foreign.MemorySegment;
 import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
 import org.jspecify.annotations.NonNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class DaveDecryptor implements AutoCloseable {
     private static final Logger log = LoggerFactory.getLogger(DaveDecryptor.class);
+    // Default transition expiry of libdave, unencrypted frames are still accepted this long after leaving passthrough
+    private static final long PASSTHROUGH_GRACE_NANOS = TimeUnit.SECONDS.toNanos(10);
     private final long userId;
     private final DaveSessionImpl session;
-    private final MemorySegment decryptor;
+    private final RefCountedHandle decryptor;
+    private final DaveBufferPool bufferPool;
+    // Mirrors when libdave accepts unencrypted frames, which is in passthrough mode and for a grace period after
+    private volatile boolean passthrough;
+    private volatile boolean passthroughGrace;
+    private volatile long passthroughGraceEnd;
+    private final FrameSizeCache maxPlaintextSizes = new FrameSizeCache(this::computeMaxPlaintextByteSize);
 
-    private DaveDecryptor(long userId, @NonNull DaveSessionImpl session, @NonNull MemorySegment decryptor) {
+    private DaveDecryptor(
+            long userId,
+            @NonNull DaveSessionImpl session,
+            @NonNull MemorySegment decryptor,
+            @NonNull DaveBufferPool bufferPool) {
         this.userId = userId;
         this.session = session;
-        this.decryptor = decryptor;
+        this.decryptor = new RefCountedHandle(decryptor, LibDaveDecryptorBinding::destroyDecryptor);
+        this.bufferPool = bufferPool;
     }
 
     @NonNull
     public static DaveDecryptor create(long userId, @NonNull DaveSessionImpl session) {
-        return new DaveDecryptor(userId, session, LibDaveDecryptorBinding.createDecryptor());
+        return create(userId, session, DaveBufferPool.getDefault());
     }
 
-    private void destroy() {
-        LibDaveDecryptorBinding.destroyDecryptor(decryptor);
+    // The pool provides native staging buffers for heap memory, unless critical downcalls are enabled
+    @NonNull
+    public static DaveDecryptor create(
+            long userId, @NonNull DaveSessionImpl session, @NonNull DaveBufferPool bufferPool) {
+        return new DaveDecryptor(userId, session, LibDaveDecryptorBinding.createDecryptor(), bufferPool);
     }
 
-    public void prepareTransition(int protocolVersion) {
+    // Synchronized, since users can be re-keyed by subscribing to them while the gateway prepares a transition
+    public synchronized void prepareTransition(int protocolVersion) {
         log.debug("Preparing transition to protocol version {}", protocolVersion);
         boolean disabled = protocolVersion == DaveConstants.DISABLED_PROTOCOL_VERSION;
 
-        if (!disabled) {
-            updateKeyRatchet();
+        // The user might have been removed concurrently
+        if (!decryptor.acquire()) {
+            log.debug("Skipping transition of closed decryptor");
+            return;
+        }
+
+        try {
+            if (!disabled) {
+                updateKeyRatchet();
+            }
+
+            LibDaveDecryptorBinding.transitionToPassthroughMode(decryptor.segment(), disabled);
+            updatePassthrough(disabled);
+            maxPlaintextSizes.invalidate();
+        } finally {
+            decryptor.release();
+        }
+    }
+
+    // Like libdave, only leaving passthrough mode starts the grace period, an earlier one is never extended
+    private void updatePassthrough(boolean enabled) {
+        if (enabled) {
+            passthrough = true;
+        } else if (passthrough) {
+            passthroughGraceEnd = System.nanoTime() + PASSTHROUGH_GRACE_NANOS;
+            passthroughGrace = true;
+            passthrough = false;
+        }
+
+        // close() may have cleared the flags while this transition still held a reference
+        if (decryptor.isClosed()) {
+            passthrough = false;
+            passthroughGrace = false;
         }
+    }
 
-        LibDaveDecryptorBinding.transitionToPassthroughMode(decryptor, disabled);
+    // Whether libdave would copy a frame without a valid DAVE trailer instead of rejecting it
+    public boolean acceptsUnencryptedFrames() {
+        return passthrough || (passthroughGrace && System.nanoTime() - passthroughGraceEnd < 0);
+    }
+
+    // Silence frames are let through by libdave regardless of the passthrough mode
+    private boolean acceptsUnencryptedFrame(@NonNull DaveMediaType mediaType, @NonNull MemorySegment frame) {
+        if (mediaType == DaveMediaType.AUDIO && DaveFrameClassifier.isOpusSilence(frame)) {
+            return !decryptor.isClosed();
+        }
+        return acceptsUnencryptedFrames();
     }
 
+    // Called with a reference to the decryptor
     private void updateKeyRatchet() {
         try (DaveKeyRatchet keyRatchet = DaveKeyRatchet.create(session, Long.toUnsignedString(userId))) {
             log.debug("Updating key ratchet");
-            LibDaveDecryptorBinding.transitionToKeyRatchet(decryptor, keyRatchet.getMemorySegment());
+            LibDaveDecryptorBinding.transitionToKeyRatchet(decryptor.segment(), keyRatchet.getMemorySegment());
         }
     }
 
     public long getMaxPlaintextByteSize(@NonNull DaveMediaType mediaType, long frameSize) {
-        return LibDaveDecryptorBinding.getMaxPlaintextByteSize(decryptor, mediaType, frameSize);
+        return maxPlaintextSizes.get(mediaType, frameSize);
+    }
+
+    private long computeMaxPlaintextByteSize(@NonNull DaveMediaType mediaType, long frameSize) {
+        if (!decryptor.acquire()) {
+            return frameSize;
+        }
+
+        try {
+            return LibDaveDecryptorBinding.getMaxPlaintextByteSize(decryptor.segment(), mediaType, frameSize);
+        } finally {
+            decryptor.release();
+        }
     }
 
     @NonNull
     public DaveDecryptResult decrypt(
             @NonNull DaveMediaType mediaType, @NonNull ByteBuffer encrypted, @NonNull ByteBuffer decrypted) {
-        try (Arena local = Arena.ofConfined()) {
-            MemorySegment bytesWrittenPtr = local.allocate(C_SIZE);
-            int result = LibDaveDecryptorBinding.decrypt(
-                    decryptor,
+        long bytesWritten = decrypt(mediaType, MemorySegment.ofBuffer(encrypted), MemorySegment.ofBuffer(decrypted));
+        if (bytesWritten < 0) {
+            return new DaveDecryptResult(DaveDecryptResultType.FAILURE, 0);
+        }
+
+        decrypted.limit(decrypted.position() + (int) bytesWritten);
+        return new DaveDecryptResult(DaveDecryptResultType.SUCCESS, bytesWritten);
+    }
+
+    // Allocation-free hot path, returns the number of bytes written or -1 on failure
+    public long decrypt(
+            @NonNull DaveMediaType mediaType, @NonNull MemorySegment encrypted, @NonNull MemorySegment decrypted) {
+        return decryptFrame(mediaType, encrypted, decrypted, getSizeScratch());
+    }
+
+    // Decrypts the frame into its own memory, so a received packet only needs a single buffer.
+    // The plaintext starts at the position of the frame and is never longer than the ciphertext.
+    @NonNull
+    public DaveDecryptResult decryptInPlace(@NonNull DaveMediaType mediaType, @NonNull ByteBuffer frame) {
+        long bytesWritten = decryptInPlace(mediaType, MemorySegment.ofBuffer(frame));
+        if (bytesWritten < 0) {
+            return new DaveDecryptResult(DaveDecryptResultType.FAILURE, 0);
+        }
+
+        frame.limit(frame.position() + (int) bytesWritten);
+        return new DaveDecryptResult(DaveDecryptResultType.SUCCESS, bytesWritten);
+    }
+
+    // Returns the number of bytes written to the start of the frame or -1 on failure, in which case the frame is left
+    // untouched. libdave parses the ciphertext into its own buffers and only writes the plaintext once the frame is
+    // authenticated, so the frame is passed as both input and output. Only heap frames are staged, through a single
+    // pooled buffer that is copied back on success.
+    public long decryptInPlace(@NonNull DaveMediaType mediaType, @NonNull MemorySegment frame) {
+        long frameSize = frame.byteSize();
+        if (DaveFrameClassifier.classify(frame) != DaveFrameType.ENCRYPTED) {
+            return acceptsUnencryptedFrame(mediaType, frame) ? frameSize : -1;
+        }
+
+        MemorySegment bytesWrittenPtr = getSizeScratch();
+        if (LibDave.isCriticalDowncalls() || frame.isNative()) {
+            return decryptNative(mediaType, frame, frameSize, frame, frameSize, bytesWrittenPtr);
+        }
+
+        try (DaveBufferPool.Lease lease = bufferPool.lease(frameSize)) {
+            MemorySegment staged = lease.segment();
+            MemorySegment.copy(frame, 0, staged, 0, frameSize);
+            long bytesWritten = decryptNative(mediaType, staged, frameSize, staged, frameSize, bytesWrittenPtr);
+            if (bytesWritten > 0) {
+                MemorySegment.copy(staged, 0, frame, 0, bytesWritten);
+            }
+
+            return bytesWritten;
+        }
+    }
+
+    // Decrypts a burst of frames from this user, returns how many frames were decrypted successfully
+    public int decrypt(
+            @NonNull DaveMediaType mediaType,
+            @NonNull ByteBuffer @NonNull [] encrypted,
+            @NonNull ByteBuffer @NonNull [] decrypted,
+            @NonNull DaveDecryptResultType @NonNull [] results) {
+        DaveEncryptor.checkBatch(encrypted.length, decrypted.length, results.length);
+
+        MemorySegment bytesWrittenPtr = getSizeScratch();
+        int successful = 0;
+        for (int i = 0; i < encrypted.length; i++) {
+            ByteBuffer output = decrypted[i];
+            long bytesWritten = decryptFrame(
+                    mediaType, MemorySegment.ofBuffer(encrypted[i]), MemorySegment.ofBuffer(output), bytesWrittenPtr);
+
+            if (bytesWritten < 0) {
+                results[i] = DaveDecryptResultType.FAILURE;
+            } else {
+                output.limit(output.position() + (int) bytesWritten);
+                results[i] = DaveDecryptResultType.SUCCESS;
+                successful++;
+            }
+        }
+
+        return successful;
+    }
+
+    // Decrypts a burst of frames from this user, bytesWritten is set to -1 for frames that failed
+    public int decrypt(
+            @NonNull DaveMediaType mediaType,
+            @NonNull MemorySegment @NonNull [] encrypted,
+            @NonNull MemorySegment @NonNull [] decrypted,
+            long @NonNull [] bytesWritten) {
+        DaveEncryptor.checkBatch(encrypted.length, decrypted.length, bytesWritten.length);
+
+        MemorySegment bytesWrittenPtr = getSizeScratch();
+        int successful = 0;
+        for (int i = 0; i < encrypted.length; i++) {
+            bytesWritten[i] = decryptFrame(mediaType, encrypted[i], decrypted[i], bytesWrittenPtr);
+            if (bytesWritten[i] >= 0) {
+                successful++;
+            }
+        }
+
+        return successful;
+    }
+
+    private long decryptFrame(
+            @NonNull DaveMediaType mediaType,
+            @NonNull MemorySegment encrypted,
+            @NonNull MemorySegment decrypted,
+            @NonNull MemorySegment bytesWrittenPtr) {
+        // libdave only copies or rejects frames without a valid trailer, which is decided here without the downcall
+        if (DaveFrameClassifier.classify(encrypted) != DaveFrameType.ENCRYPTED) {
+            return acceptsUnencryptedFrame(mediaType, encrypted) ? DaveEncryptor.copyFrame(encrypted, decrypted) : -1;
+        }
+
+        if (!LibDave.isCriticalDowncalls() && (!encrypted.isNative() || !decrypted.isNative())) {
+            return decryptStaged(mediaType, encrypted, decrypted, bytesWrittenPtr);
+        }
+
+        return decryptNative(
+                mediaType, encrypted, encrypted.byteSize(), decrypted, decrypted.byteSize(), bytesWrittenPtr);
+    }
+
+    private long decryptNative(
+            @NonNull DaveMediaType mediaType,
+            @NonNull MemorySegment encrypted,
+            long encryptedSize,
+            @NonNull MemorySegment decrypted,
+            long decryptedCapacity,
+            @NonNull MemorySegment bytesWrittenPtr) {
+        // A decryptor that was closed by removeUser fails the frame instead of freeing the handle under the native call
+        if (!decryptor.acquire()) {
+            return -1;
+        }
+
+        int result;
+        try {
+            result = LibDaveDecryptorBinding.decrypt(
+                    decryptor.segment(),
                     mediaType,
-                    MemorySegment.ofBuffer(encrypted),
-                    MemorySegment.ofBuffer(decrypted),
+                    encrypted,
+                    encryptedSize,
+                    decrypted,
+                    decryptedCapacity,
                     bytesWrittenPtr);
+        } finally {
+            decryptor.release();
+        }
 
-            long bytesWritten = readSize(bytesWrittenPtr);
-            DaveDecryptResultType resultType = DaveDecryptResultType.fromRaw(result);
-            if (resultType == DaveDecryptResultType.SUCCESS && bytesWritten > 0) {
-                decrypted.limit(decrypted.position() + (int) bytesWritten);
+        if (DaveDecryptResultType.fromRaw(result) != DaveDecryptResultType.SUCCESS) {
+            return -1;
+        }
+
+        return readSize(bytesWrittenPtr);
+    }
+
+    // Regular downcalls only accept native memory, so heap frames are copied through pooled buffers
+    private long decryptStaged(
+            @NonNull DaveMediaType mediaType,
+            @NonNull MemorySegment encrypted,
+            @NonNull MemorySegment decrypted,
+            @NonNull MemorySegment bytesWrittenPtr) {
+        long encryptedSize = encrypted.byteSize();
+        long decryptedCapacity = decrypted.byteSize();
+        try (DaveBufferPool.Lease inputLease = encrypted.isNative() ? null : bufferPool.lease(encryptedSize);
+                DaveBufferPool.Lease outputLease = decrypted.isNative() ? null : bufferPool.lease(decryptedCapacity)) {
+            MemorySegment nativeInput = encrypted;
+            if (inputLease != null) {
+                nativeInput = inputLease.segment();
+                MemorySegment.copy(encrypted, 0, nativeInput, 0, encryptedSize);
             }
 
-            return new DaveDecryptResult(resultType, bytesWritten);
+            MemorySegment nativeOutput = outputLease != null ? outputLease.segment() : decrypted;
+            long bytesWritten = decryptNative(
+                    mediaType, nativeInput, encryptedSize, nativeOutput, decryptedCapacity, bytesWrittenPtr);
+            if (bytesWritten > 0 && outputLease != null) {
+                MemorySegment.copy(nativeOutput, 0, decrypted, 0, bytesWritten);
+            }
+
+            return bytesWritten;
         }
     }
 
+    public boolean isPassthrough() {
+        return passthrough;
+    }
+
     @Override
     public void close() {
-        destroy();
+        decryptor.close();
+        // Frames of a closed decryptor fail, even if they would only be copied.
+        // Cleared after closing the handle, so a concurrent transition observes the closed state.
+        passthrough = false;
+        passthroughGrace = false;
     }
 
     public record DaveDecryptResult(@NonNull DaveDecryptResultType type, long bytesWritten) {}
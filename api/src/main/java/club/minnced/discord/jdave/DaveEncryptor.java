@@ -1,110 +1,349 @@
 package club.minnced.discord.jdave;
 
-import static club.minnced.discord.jdave.ffi.LibDave.C_SIZE;
+import static club.minnced.discord.jdave.ffi.LibDave.getSizeScratch;
 import static club.minnced.discord.jdave.ffi.LibDave.readSize;
 
+import club.minnced.discord.jdave.ffi.LibDave;
 import club.minnced.discord.jdave.ffi.LibDaveEncryptorBinding;
-import java.lang.foreign.Arena;
+import club.minnced.discord.jdave.utils.DaveBufferPool;
 import java.lang.foreign.MemorySegment;
 import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.jspecify.annotations.NonNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class DaveEncryptor implements AutoCloseable {
     private static final Logger log = LoggerFactory.getLogger(DaveEncryptor.class);
-    private final MemorySegment encryptor;
+    private final RefCountedHandle encryptor;
     private final DaveSessionImpl session;
     private final long selfUserId;
+    private final DaveBufferPool bufferPool;
+    private final Map<Integer, PendingTransition> pendingTransitions = new ConcurrentHashMap<>();
+    private volatile boolean passthrough = true;
+    private final FrameSizeCache maxCiphertextSizes = new FrameSizeCache(this::computeMaxCiphertextByteSize);
 
-    private DaveEncryptor(@NonNull MemorySegment encryptor, @NonNull DaveSessionImpl session, long selfUserId) {
-        this.encryptor = encryptor;
+    private DaveEncryptor(
+            @NonNull MemorySegment encryptor,
+            @NonNull DaveSessionImpl session,
+            long selfUserId,
+            @NonNull DaveBufferPool bufferPool) {
+        this.encryptor = new RefCountedHandle(encryptor, LibDaveEncryptorBinding::destroyEncryptor);
         this.session = session;
         this.selfUserId = selfUserId;
+        this.bufferPool = bufferPool;
 
         LibDaveEncryptorBinding.setPassthroughMode(encryptor, true);
     }
 
     @NonNull
     public static DaveEncryptor create(DaveSessionImpl session, long selfUserId) {
-        return new DaveEncryptor(LibDaveEncryptorBinding.createEncryptor(), session, selfUserId);
+        return create(session, selfUserId, DaveBufferPool.getDefault());
     }
 
-    private void destroy() {
-        LibDaveEncryptorBinding.destroyEncryptor(encryptor);
+    // The pool provides native staging buffers for heap memory, unless critical downcalls are enabled
+    @NonNull
+    public static DaveEncryptor create(
+            @NonNull DaveSessionImpl session, long selfUserId, @NonNull DaveBufferPool bufferPool) {
+        return new DaveEncryptor(LibDaveEncryptorBinding.createEncryptor(), session, selfUserId, bufferPool);
     }
 
     public void prepareTransition(int protocolVersion) {
-        log.debug("Preparing to transition to protocol version {}", protocolVersion);
+        prepareTransition(DaveConstants.INIT_TRANSITION_ID, protocolVersion);
+    }
+
+    // Derives the key ratchet for the upcoming transition right away, so executing it is only a swap
+    public void prepareTransition(int transitionId, int protocolVersion) {
+        log.debug("Preparing to transition to protocol version {} (Transition ID {})", protocolVersion, transitionId);
         boolean disabled = protocolVersion == DaveConstants.DISABLED_PROTOCOL_VERSION;
 
-        if (!disabled) {
-            updateKeyRatchet();
+        DaveKeyRatchet keyRatchet = disabled
+                ? new DaveKeyRatchet(MemorySegment.NULL)
+                : DaveKeyRatchet.create(session, Long.toUnsignedString(selfUserId));
+
+        PendingTransition previous =
+                pendingTransitions.put(transitionId, new PendingTransition(protocolVersion, keyRatchet));
+        if (previous != null) {
+            previous.keyRatchet().close();
         }
     }
 
     public void processTransition(int protocolVersion) {
-        log.debug("Transitioning to protocol version {}", protocolVersion);
-        boolean disabled = protocolVersion == DaveConstants.DISABLED_PROTOCOL_VERSION;
+        PendingTransition pending = pendingTransitions.remove(DaveConstants.INIT_TRANSITION_ID);
+        if (pending != null && pending.protocolVersion() == protocolVersion) {
+            applyTransition(pending);
+            return;
+        }
+
+        if (pending != null) {
+            pending.keyRatchet().close();
+        }
+
+        prepareTransition(DaveConstants.INIT_TRANSITION_ID, protocolVersion);
+        executeTransition(DaveConstants.INIT_TRANSITION_ID);
+    }
+
+    public boolean executeTransition(int transitionId) {
+        PendingTransition pending = pendingTransitions.remove(transitionId);
+        if (pending == null) {
+            return false;
+        }
+
+        applyTransition(pending);
+        return true;
+    }
 
-        if (!disabled) {
-            disabled = updateKeyRatchet();
+    public void cancelTransition(int transitionId) {
+        PendingTransition pending = pendingTransitions.remove(transitionId);
+        if (pending != null) {
+            pending.keyRatchet().close();
         }
+    }
+
+    private void applyTransition(@NonNull PendingTransition pending) {
+        log.debug("Transitioning to protocol version {}", pending.protocolVersion());
+        try (DaveKeyRatchet keyRatchet = pending.keyRatchet()) {
+            if (!encryptor.acquire()) {
+                log.debug("Skipping transition of closed encryptor");
+                return;
+            }
+
+            try {
+                boolean disabled = pending.protocolVersion() == DaveConstants.DISABLED_PROTOCOL_VERSION;
+                if (!disabled) {
+                    log.debug("Updating key ratchet");
+                    LibDaveEncryptorBinding.setKeyRatchet(encryptor.segment(), keyRatchet.getMemorySegment());
+                    disabled = keyRatchet.isNull();
+                }
 
-        transitionToPassthrough(disabled);
+                transitionToPassthrough(disabled);
+                maxCiphertextSizes.invalidate();
+            } finally {
+                encryptor.release();
+            }
+        }
     }
 
+    // Called with a reference to the encryptor
     private void transitionToPassthrough(boolean passthrough) {
         log.debug("Transitioning to passthrough mode: {}", passthrough);
-        LibDaveEncryptorBinding.setPassthroughMode(encryptor, passthrough);
+        LibDaveEncryptorBinding.setPassthroughMode(encryptor.segment(), passthrough);
+        this.passthrough = passthrough;
+        // close() may have cleared the flag while this transition still held a reference
+        if (encryptor.isClosed()) {
+            this.passthrough = false;
+        }
     }
 
-    private boolean updateKeyRatchet() {
-        try (DaveKeyRatchet keyRatchet = DaveKeyRatchet.create(session, Long.toUnsignedString(selfUserId))) {
-            log.debug("Updating key ratchet");
-            LibDaveEncryptorBinding.setKeyRatchet(encryptor, keyRatchet.getMemorySegment());
-            return keyRatchet.isNull();
-        }
+    public boolean isPassthrough() {
+        return passthrough;
     }
 
     public long getMaxCiphertextByteSize(@NonNull DaveMediaType mediaType, long frameSize) {
-        return LibDaveEncryptorBinding.getMaxCiphertextByteSize(encryptor, mediaType.ordinal(), frameSize);
+        return maxCiphertextSizes.get(mediaType, frameSize);
+    }
+
+    private long computeMaxCiphertextByteSize(@NonNull DaveMediaType mediaType, long frameSize) {
+        if (!encryptor.acquire()) {
+            return frameSize;
+        }
+
+        try {
+            return LibDaveEncryptorBinding.getMaxCiphertextByteSize(
+                    encryptor.segment(), mediaType.ordinal(), frameSize);
+        } finally {
+            encryptor.release();
+        }
     }
 
     public void assignSsrcToCodec(@NonNull DaveCodec codec, int ssrc) {
-        LibDaveEncryptorBinding.assignSsrcToCodec(encryptor, ssrc, codec.ordinal());
+        if (!encryptor.acquire()) {
+            return;
+        }
+
+        try {
+            LibDaveEncryptorBinding.assignSsrcToCodec(encryptor.segment(), ssrc, codec.ordinal());
+        } finally {
+            encryptor.release();
+        }
     }
 
     @NonNull
     public DaveEncryptorResult encrypt(
             @NonNull DaveMediaType mediaType, int ssrc, @NonNull ByteBuffer input, @NonNull ByteBuffer output) {
-        try (Arena local = Arena.ofConfined()) {
-            MemorySegment bytesWrittenPtr = local.allocate(C_SIZE);
+        long bytesWritten = encrypt(mediaType, ssrc, MemorySegment.ofBuffer(input), MemorySegment.ofBuffer(output));
+        if (bytesWritten < 0) {
+            return new DaveEncryptorResult(DaveEncryptResultType.FAILURE, 0);
+        }
+
+        output.limit(output.position() + (int) bytesWritten);
+        return new DaveEncryptorResult(DaveEncryptResultType.SUCCESS, bytesWritten);
+    }
+
+    // Allocation-free hot path, returns the number of bytes written or -1 on failure
+    public long encrypt(
+            @NonNull DaveMediaType mediaType, int ssrc, @NonNull MemorySegment input, @NonNull MemorySegment output) {
+        return encryptFrame(mediaType.ordinal(), ssrc, input, output, getSizeScratch());
+    }
+
+    // Encrypts a burst of frames for the same ssrc, returns how many frames were encrypted successfully
+    public int encrypt(
+            @NonNull DaveMediaType mediaType,
+            int ssrc,
+            @NonNull ByteBuffer @NonNull [] inputs,
+            @NonNull ByteBuffer @NonNull [] outputs,
+            @NonNull DaveEncryptResultType @NonNull [] results) {
+        checkBatch(inputs.length, outputs.length, results.length);
 
-            int result = LibDaveEncryptorBinding.encrypt(
-                    encryptor,
+        MemorySegment bytesWrittenPtr = getSizeScratch();
+        int successful = 0;
+        for (int i = 0; i < inputs.length; i++) {
+            ByteBuffer output = outputs[i];
+            long bytesWritten = encryptFrame(
                     mediaType.ordinal(),
                     ssrc,
-                    MemorySegment.ofBuffer(input),
+                    MemorySegment.ofBuffer(inputs[i]),
                     MemorySegment.ofBuffer(output),
                     bytesWrittenPtr);
 
-            long bytesWritten = readSize(bytesWrittenPtr);
-            DaveEncryptResultType resultType = DaveEncryptResultType.fromRaw(result);
-
-            if (resultType == DaveEncryptResultType.SUCCESS && bytesWritten > 0) {
+            if (bytesWritten < 0) {
+                results[i] = DaveEncryptResultType.FAILURE;
+            } else {
                 output.limit(output.position() + (int) bytesWritten);
+                results[i] = DaveEncryptResultType.SUCCESS;
+                successful++;
+            }
+        }
+
+        return successful;
+    }
+
+    // Encrypts a burst of frames for the same ssrc, bytesWritten is set to -1 for frames that failed
+    public int encrypt(
+            @NonNull DaveMediaType mediaType,
+            int ssrc,
+            @NonNull MemorySegment @NonNull [] inputs,
+            @NonNull MemorySegment @NonNull [] outputs,
+            long @NonNull [] bytesWritten) {
+        checkBatch(inputs.length, outputs.length, bytesWritten.length);
+
+        MemorySegment bytesWrittenPtr = getSizeScratch();
+        int successful = 0;
+        for (int i = 0; i < inputs.length; i++) {
+            bytesWritten[i] = encryptFrame(mediaType.ordinal(), ssrc, inputs[i], outputs[i], bytesWrittenPtr);
+            if (bytesWritten[i] >= 0) {
+                successful++;
+            }
+        }
+
+        return successful;
+    }
+
+    private long encryptFrame(
+            int mediaType,
+            int ssrc,
+            @NonNull MemorySegment input,
+            @NonNull MemorySegment output,
+            @NonNull MemorySegment bytesWrittenPtr) {
+        // libdave would only copy the frame, which is cheaper without the downcall
+        if (passthrough) {
+            return copyFrame(input, output);
+        }
+
+        if (!LibDave.isCriticalDowncalls() && (!input.isNative() || !output.isNative())) {
+            return encryptStaged(mediaType, ssrc, input, output, bytesWrittenPtr);
+        }
+
+        return encryptNative(mediaType, ssrc, input, input.byteSize(), output, output.byteSize(), bytesWrittenPtr);
+    }
+
+    private long encryptNative(
+            int mediaType,
+            int ssrc,
+            @NonNull MemorySegment input,
+            long inputSize,
+            @NonNull MemorySegment output,
+            long outputCapacity,
+            @NonNull MemorySegment bytesWrittenPtr) {
+        // A closed encryptor fails the frame instead of freeing the handle under the native call
+        if (!encryptor.acquire()) {
+            return -1;
+        }
+
+        int result;
+        try {
+            result = LibDaveEncryptorBinding.encrypt(
+                    encryptor.segment(), mediaType, ssrc, input, inputSize, output, outputCapacity, bytesWrittenPtr);
+        } finally {
+            encryptor.release();
+        }
+
+        if (DaveEncryptResultType.fromRaw(result) != DaveEncryptResultType.SUCCESS) {
+            return -1;
+        }
+
+        return readSize(bytesWrittenPtr);
+    }
+
+    // Regular downcalls only accept native memory, so heap frames are copied through pooled buffers
+    private long encryptStaged(
+            int mediaType,
+            int ssrc,
+            @NonNull MemorySegment input,
+            @NonNull MemorySegment output,
+            @NonNull MemorySegment bytesWrittenPtr) {
+        long inputSize = input.byteSize();
+        long outputCapacity = output.byteSize();
+        try (DaveBufferPool.Lease inputLease = input.isNative() ? null : bufferPool.lease(inputSize);
+                DaveBufferPool.Lease outputLease = output.isNative() ? null : bufferPool.lease(outputCapacity)) {
+            MemorySegment nativeInput = input;
+            if (inputLease != null) {
+                nativeInput = inputLease.segment();
+                MemorySegment.copy(input, 0, nativeInput, 0, inputSize);
+            }
+
+            MemorySegment nativeOutput = outputLease != null ? outputLease.segment() : output;
+            long bytesWritten = encryptNative(
+                    mediaType, ssrc, nativeInput, inputSize, nativeOutput, outputCapacity, bytesWrittenPtr);
+            if (bytesWritten > 0 && outputLease != null) {
+                MemorySegment.copy(nativeOutput, 0, output, 0, bytesWritten);
             }
 
-            return new DaveEncryptorResult(resultType, bytesWritten);
+            return bytesWritten;
+        }
+    }
+
+    // Copies the frame unchanged, returns the size of the frame or -1 if the output is too small
+    static long copyFrame(@NonNull MemorySegment input, @NonNull MemorySegment output) {
+        long size = input.byteSize();
+        if (output.byteSize() < size) {
+            return -1;
+        }
+
+        MemorySegment.copy(input, 0, output, 0, size);
+        return size;
+    }
+
+    static void checkBatch(int inputs, int outputs, int results) {
+        if (inputs != outputs || inputs > results) {
+            throw new IllegalArgumentException("Batch needs one output and result per input, got " + inputs
+                    + " inputs, " + outputs + " outputs and " + results + " results");
         }
     }
 
     @Override
     public void close() {
-        this.destroy();
+        pendingTransitions.values().forEach(pending -> pending.keyRatchet().close());
+        pendingTransitions.clear();
+        encryptor.close();
+        // Frames of a closed encryptor fail, even if they would only be copied.
+        // Cleared after closing the handle, so a concurrent transition observes the closed state.
+        passthrough = false;
     }
 
+    private record PendingTransition(int protocolVersion, @NonNull DaveKeyRatchet keyRatchet) {}
+
     public record DaveEncryptorResult(@NonNull DaveEncryptResultType type, long bytesWritten) {}
 
     public enum DaveEncryptResultType {
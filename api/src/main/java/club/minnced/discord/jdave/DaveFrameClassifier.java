@@ -0,0 +1,74 @@
+package club.minnced.discord.jdave;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import org.jspecify.annotations.NonNull;
+
+// Classifies received frames by their DAVE protocol trailer, without calling into libdave. Encrypted frames end
+// with supplemental data (authentication tag, nonce, and unencrypted ranges), followed by its size in a single
+// byte and the magic marker. Frames without the marker were sent unencrypted.
+public final class DaveFrameClassifier {
+    // Truncated AES-GCM tag, supplemental size byte, and magic marker
+    public static final int MIN_SUPPLEMENTAL_SIZE = 11;
+
+    private DaveFrameClassifier() {}
+
+    @NonNull
+    public static DaveFrameType classify(@NonNull MemorySegment frame) {
+        long size = frame.byteSize();
+        if (size < 2 || frame.get(ValueLayout.JAVA_SHORT_UNALIGNED, size - 2) != DaveConstants.MAGIC_MARKER) {
+            return DaveFrameType.PASSTHROUGH;
+        }
+
+        if (size < 3) {
+            return DaveFrameType.MALFORMED;
+        }
+
+        return classify(size, Byte.toUnsignedInt(frame.get(ValueLayout.JAVA_BYTE, size - 3)));
+    }
+
+    // Inspects the frame between position and limit
+    @NonNull
+    public static DaveFrameType classify(@NonNull ByteBuffer frame) {
+        int start = frame.position();
+        int end = frame.limit();
+        int size = end - start;
+        if (size < 2 || frame.getShort(end - 2) != DaveConstants.MAGIC_MARKER) {
+            return DaveFrameType.PASSTHROUGH;
+        }
+
+        if (size < 3) {
+            return DaveFrameType.MALFORMED;
+        }
+
+        return classify(size, Byte.toUnsignedInt(frame.get(end - 3)));
+    }
+
+    // Opus frames of silence are sent unencrypted, libdave accepts them from audio streams even outside passthrough
+    public static boolean isOpusSilence(@NonNull MemorySegment frame) {
+        return frame.byteSize() == 3
+                && frame.get(ValueLayout.JAVA_BYTE, 0) == (byte) 0xF8
+                && frame.get(ValueLayout.JAVA_BYTE, 1) == (byte) 0xFF
+                && frame.get(ValueLayout.JAVA_BYTE, 2) == (byte) 0xFE;
+    }
+
+    // Same bounds libdave checks before parsing the supplemental data
+    @NonNull
+    private static DaveFrameType classify(long size, int supplementalSize) {
+        if (supplementalSize < MIN_SUPPLEMENTAL_SIZE || supplementalSize > size) {
+            return DaveFrameType.MALFORMED;
+        }
+        return DaveFrameType.ENCRYPTED;
+    }
+
+    public enum DaveFrameType {
+        // Ends with a plausible DAVE trailer, only libdave can tell whether it decrypts
+        ENCRYPTED,
+        // Sent without encryption, which is only accepted in passthrough mode
+        PASSTHROUGH,
+        // Ends with the magic marker but the trailer is invalid, libdave treats it like an unencrypted frame
+        MALFORMED,
+        ;
+    }
+}
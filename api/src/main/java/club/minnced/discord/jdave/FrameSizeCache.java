@@ -0,0 +1,66 @@
+package club.minnced.discord.jdave;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.jspecify.annotations.NonNull;
+
+// Memoizes max ciphertext/plaintext sizes, which only change with the state of the encryptor or decryptor.
+// Entries are direct-mapped per media type and pack the frame size and result into a single long,
+// so lookups need no locking and a racing write can only ever replace one valid entry with another.
+class FrameSizeCache {
+    private static final int SLOTS_PER_MEDIA_TYPE = 64;
+    private static final int MEDIA_TYPES = 2;
+    private static final long EMPTY = -1;
+    private static final long MAX_VALUE = 0xFFFFFFFFL;
+
+    private final SizeFunction function;
+    // Replaced as a whole on invalidation, so a computation racing with a transition can only
+    // store its result into the discarded array
+    private volatile AtomicLongArray entries = newEntries();
+
+    FrameSizeCache(@NonNull SizeFunction function) {
+        this.function = function;
+    }
+
+    long get(@NonNull DaveMediaType mediaType, long frameSize) {
+        int type = mediaType.ordinal();
+        if (type >= MEDIA_TYPES || frameSize < 0 || frameSize > Integer.MAX_VALUE) {
+            return function.compute(mediaType, frameSize);
+        }
+
+        AtomicLongArray current = entries;
+        int index = type * SLOTS_PER_MEDIA_TYPE + slot(frameSize);
+        long entry = current.get(index);
+        if (entry != EMPTY && entry >>> 32 == frameSize) {
+            return entry & MAX_VALUE;
+        }
+
+        long size = function.compute(mediaType, frameSize);
+        if (size >= 0 && size <= MAX_VALUE) {
+            current.set(index, frameSize << 32 | size);
+        }
+        return size;
+    }
+
+    void invalidate() {
+        entries = newEntries();
+    }
+
+    private static int slot(long frameSize) {
+        int hash = (int) frameSize * 0x9E3779B9;
+        return hash >>> (Integer.SIZE - Integer.numberOfTrailingZeros(SLOTS_PER_MEDIA_TYPE));
+    }
+
+    @NonNull
+    private static AtomicLongArray newEntries() {
+        AtomicLongArray entries = new AtomicLongArray(MEDIA_TYPES * SLOTS_PER_MEDIA_TYPE);
+        for (int i = 0; i < entries.length(); i++) {
+            entries.set(i, EMPTY);
+        }
+        return entries;
+    }
+
+    @FunctionalInterface
+    interface SizeFunction {
+        long compute(@NonNull DaveMediaType mediaType, long frameSize);
+    }
+}
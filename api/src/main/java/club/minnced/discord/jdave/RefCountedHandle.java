@@ -0,0 +1,78 @@
+package club.minnced.discord.jdave;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.function.Consumer;
+import org.jspecify.annotations.NonNull;
+
+// Native handle that can be closed by the control plane while the data plane is still using it. Every use
+// acquires a reference first, and the handle is destroyed by whichever comes last of close() and the release
+// of the final reference. Acquiring and releasing are a single atomic add each, so the data plane never waits.
+final class RefCountedHandle {
+    private static final long CLOSED = 1L << 62;
+    private static final long DESTROYED = 1L << 61;
+    private static final VarHandle STATE;
+
+    static {
+        try {
+            STATE = MethodHandles.lookup().findVarHandle(RefCountedHandle.class, "state", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final MemorySegment segment;
+    private final Consumer<MemorySegment> destructor;
+
+    // Number of references in the low bits, and the CLOSED and DESTROYED flags
+    @SuppressWarnings("unused")
+    private volatile long state;
+
+    RefCountedHandle(@NonNull MemorySegment segment, @NonNull Consumer<MemorySegment> destructor) {
+        this.segment = segment;
+        this.destructor = destructor;
+    }
+
+    // Returns false if the handle was closed, in which case it must not be used or released
+    boolean acquire() {
+        long previous = (long) STATE.getAndAdd(this, 1L);
+        if ((previous & CLOSED) != 0) {
+            release();
+            return false;
+        }
+        return true;
+    }
+
+    void release() {
+        long current = (long) STATE.getAndAdd(this, -1L) - 1;
+        if (current == CLOSED) {
+            destroy();
+        }
+    }
+
+    // Only valid between acquire and release
+    @NonNull
+    MemorySegment segment() {
+        return segment;
+    }
+
+    boolean isClosed() {
+        return ((long) STATE.getVolatile(this) & CLOSED) != 0;
+    }
+
+    void close() {
+        long previous = (long) STATE.getAndBitwiseOr(this, CLOSED);
+        if (previous == 0) {
+            destroy();
+        }
+    }
+
+    // Both close() and a failed acquire() can observe the closed handle without references, but only one of them
+    // moves it to DESTROYED
+    private void destroy() {
+        if (STATE.compareAndSet(this, CLOSED, CLOSED | DESTROYED)) {
+            destructor.accept(segment);
+        }
+    }
+}
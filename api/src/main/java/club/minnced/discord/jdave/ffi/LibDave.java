@@ -9,6 +9,7 @@ import java.lang.foreign.*;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
+import java.util.List;
 import org.jspecify.annotations.NonNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,14 +19,20 @@ public class LibDave {
     static final SymbolLookup SYMBOL_LOOKUP;
     public static final MemoryLayout C_SIZE;
 
+    // Opt-in, links the per-frame functions as critical which skips the thread state transition and allows heap memory
+    private static final boolean CRITICAL_DOWNCALLS = Boolean.getBoolean("jdave.ffi.critical");
+
     static {
         SYMBOL_LOOKUP = NativeLibraryLoader.getSymbolLookup();
-        C_SIZE = LINKER.canonicalLayouts().get("size_t");
+        // Named so that size_t arguments can be told apart from plain integers on 32-bit platforms
+        C_SIZE = LINKER.canonicalLayouts().get("size_t").withName("size_t");
     }
 
     private LibDave() {}
 
     static final Logger log = LoggerFactory.getLogger(LibDave.class);
+    private static final ThreadLocal<MemorySegment> SIZE_SCRATCH =
+            ThreadLocal.withInitial(() -> Arena.ofAuto().allocate(C_SIZE));
     static final MethodHandle daveMaxSupportedProtocolVersion;
     static final MethodHandle daveSetLogSinkCallback;
     static final MethodHandle free;
@@ -33,13 +40,11 @@ public class LibDave {
     static {
         try {
             // uint16_t daveMaxSupportedProtocolVersion(void);
-            daveMaxSupportedProtocolVersion = LINKER.downcallHandle(
-                    SYMBOL_LOOKUP.find("daveMaxSupportedProtocolVersion").orElseThrow(),
-                    FunctionDescriptor.of(JAVA_SHORT));
+            daveMaxSupportedProtocolVersion =
+                    downcallHandle("daveMaxSupportedProtocolVersion", FunctionDescriptor.of(JAVA_SHORT));
 
             // void daveSetLogSinkCallback(DAVELogSinkCallback callback);
-            daveSetLogSinkCallback = LINKER.downcallHandle(
-                    SYMBOL_LOOKUP.find("daveSetLogSinkCallback").orElseThrow(), FunctionDescriptor.ofVoid(ADDRESS));
+            daveSetLogSinkCallback = downcallHandle("daveSetLogSinkCallback", FunctionDescriptor.ofVoid(ADDRESS));
 
             // void free(void*);
             free = LINKER.downcallHandle(
@@ -51,14 +56,57 @@ public class LibDave {
         DaveLogger.init();
     }
 
+    // Links a libdave function for invokeExact call sites, size_t is always exposed as a java long
+    @NonNull
+    static MethodHandle downcallHandle(
+            @NonNull String name, @NonNull FunctionDescriptor function, Linker.Option... options) {
+        MethodHandle handle = LINKER.downcallHandle(SYMBOL_LOOKUP.find(name).orElseThrow(), function, options);
+        if (C_SIZE.byteSize() == JAVA_LONG.byteSize()) {
+            return handle;
+        }
+
+        MethodType type = handle.type();
+        List<MemoryLayout> arguments = function.argumentLayouts();
+        for (int i = 0; i < arguments.size(); i++) {
+            if (arguments.get(i).equals(C_SIZE)) {
+                type = type.changeParameterType(i, long.class);
+            }
+        }
+
+        if (function.returnLayout().filter(C_SIZE::equals).isPresent()) {
+            type = type.changeReturnType(long.class);
+        }
+
+        return MethodHandles.explicitCastArguments(handle, type);
+    }
+
+    // Options for short, non-blocking functions that are called for every frame and never upcall
+    static Linker.Option @NonNull [] getPerFrameOptions() {
+        if (CRITICAL_DOWNCALLS) {
+            return new Linker.Option[] {Linker.Option.critical(true)};
+        }
+
+        return new Linker.Option[0];
+    }
+
+    public static boolean isCriticalDowncalls() {
+        return CRITICAL_DOWNCALLS;
+    }
+
     public static void free(@NonNull MemorySegment segment) {
         try {
-            free.invoke(segment);
+            free.invokeExact(segment);
         } catch (Throwable e) {
             throw new LibDaveBindingException(e);
         }
     }
 
+    // Per-thread size_t out-parameter for hot paths, only valid until the next downcall on the same thread
+    @NonNull
+    public static MemorySegment getSizeScratch() {
+        return SIZE_SCRATCH.get();
+    }
+
     public static long readSize(@NonNull MemorySegment segment) {
         if (C_SIZE.byteSize() == 4) {
             return segment.get(JAVA_INT, 0);
@@ -69,20 +117,24 @@ public class LibDave {
 
     public static short getMaxSupportedProtocolVersion() {
         try {
-            return (short) daveMaxSupportedProtocolVersion.invoke();
+            return (short) daveMaxSupportedProtocolVersion.invokeExact();
         } catch (Throwable e) {
             throw new LibDaveBindingException(e);
         }
     }
 
     public static void setLogSinkCallback(@NonNull Arena arena, @NonNull LogSinkCallback logSinkCallback) {
+        setRawLogSinkCallback(arena, new DecodingLogSinkCallback(logSinkCallback));
+    }
+
+    public static void setRawLogSinkCallback(@NonNull Arena arena, @NonNull RawLogSinkCallback logSinkCallback) {
         LogSinkCallbackMapper upcallMapper = new LogSinkCallbackMapper(logSinkCallback);
 
         MemorySegment upcall = LINKER.upcallStub(
                 upcallMapper.getMethodHandle(), FunctionDescriptor.ofVoid(JAVA_INT, ADDRESS, JAVA_INT, ADDRESS), arena);
 
         try {
-            daveSetLogSinkCallback.invoke(upcall);
+            daveSetLogSinkCallback.invokeExact(upcall);
         } catch (Throwable e) {
             free(upcall);
             throw new LibDaveBindingException(e);
@@ -94,33 +146,61 @@ public class LibDave {
     //                                    int line,
     //                                    const char* message);
     public interface LogSinkCallback {
+        // Checked before anything is decoded, so that disabled levels cost as little as possible
+        default boolean isEnabled(@NonNull DaveLoggingSeverity severity) {
+            return true;
+        }
+
         void onLogSink(@NonNull DaveLoggingSeverity severity, @NonNull String file, int line, @NonNull Object message);
     }
 
+    // Receives the native strings as zero-length segments, which are only valid for the duration of the call
+    public interface RawLogSinkCallback {
+        default boolean isEnabled(@NonNull DaveLoggingSeverity severity) {
+            return true;
+        }
+
+        void onLogSink(
+                @NonNull DaveLoggingSeverity severity,
+                @NonNull MemorySegment file,
+                int line,
+                @NonNull MemorySegment message);
+    }
+
+    private record DecodingLogSinkCallback(@NonNull LogSinkCallback logSinkCallback) implements RawLogSinkCallback {
+        @Override
+        public boolean isEnabled(@NonNull DaveLoggingSeverity severity) {
+            return logSinkCallback.isEnabled(severity);
+        }
+
+        @Override
+        public void onLogSink(
+                @NonNull DaveLoggingSeverity severity,
+                @NonNull MemorySegment file,
+                int line,
+                @NonNull MemorySegment message) {
+            logSinkCallback.onLogSink(
+                    severity, NativeUtils.asJavaString(file), line, NativeUtils.asJavaString(message));
+        }
+    }
+
     private static class LogSinkCallbackMapper {
         private static final MethodType TYPE =
                 MethodType.methodType(void.class, Integer.TYPE, MemorySegment.class, Integer.TYPE, MemorySegment.class);
 
-        private final LogSinkCallback logSinkCallback;
+        private final RawLogSinkCallback logSinkCallback;
 
-        LogSinkCallbackMapper(@NonNull LogSinkCallback logSinkCallback) {
+        LogSinkCallbackMapper(@NonNull RawLogSinkCallback logSinkCallback) {
             this.logSinkCallback = logSinkCallback;
         }
 
         public void onCallback(int severity, @NonNull MemorySegment file, int line, @NonNull MemorySegment message) {
-            DaveLoggingSeverity severityEnum =
-                    switch (severity) {
-                        case 0 -> DaveLoggingSeverity.VERBOSE;
-                        case 1 -> DaveLoggingSeverity.INFO;
-                        case 2 -> DaveLoggingSeverity.WARNING;
-                        case 3 -> DaveLoggingSeverity.ERROR;
-                        case 4 -> DaveLoggingSeverity.NONE;
-                        default -> DaveLoggingSeverity.UNKNOWN;
-                    };
+            DaveLoggingSeverity severityEnum = DaveLoggingSeverity.fromRaw(severity);
 
             try {
-                logSinkCallback.onLogSink(
-                        severityEnum, NativeUtils.asJavaString(file), line, NativeUtils.asJavaString(message));
+                if (logSinkCallback.isEnabled(severityEnum)) {
+                    logSinkCallback.onLogSink(severityEnum, file, line, message);
+                }
             } catch (Throwable t) {
                 log.error("Caught unexpected exception while trying to log message", t);
             }
@@ -1,7 +1,6 @@
 package club.minnced.discord.jdave.ffi;
 
 import static club.minnced.discord.jdave.ffi.LibDave.*;
-import static club.minnced.discord.jdave.ffi.NativeUtils.toSizeT;
 import static java.lang.foreign.ValueLayout.*;
 
 import club.minnced.discord.jdave.DaveMediaType;
@@ -22,24 +21,23 @@ public class LibDaveDecryptorBinding {
     static {
         try {
             // DAVEDecryptorHandle daveDecryptorCreate(void);
-            daveDecryptorCreate = LINKER.downcallHandle(
-                    SYMBOL_LOOKUP.find("daveDecryptorCreate").orElseThrow(), FunctionDescriptor.of(ADDRESS));
+            daveDecryptorCreate = downcallHandle("daveDecryptorCreate", FunctionDescriptor.of(ADDRESS));
 
             // void daveDecryptorDestroy(DAVEDecryptorHandle decryptor);
-            daveDecryptorDestroy = LINKER.downcallHandle(
-                    SYMBOL_LOOKUP.find("daveDecryptorDestroy").orElseThrow(), FunctionDescriptor.ofVoid(ADDRESS));
+            daveDecryptorDestroy = downcallHandle("daveDecryptorDestroy", FunctionDescriptor.ofVoid(ADDRESS));
 
             // size_t daveDecryptorGetMaxPlaintextByteSize(DAVEDecryptorHandle decryptor, DAVEMediaType mediaType,
             // size_t encryptedFrameSize);
-            daveDecryptorGetMaxPlaintextByteSize = LINKER.downcallHandle(
-                    SYMBOL_LOOKUP.find("daveDecryptorGetMaxPlaintextByteSize").orElseThrow(),
-                    FunctionDescriptor.of(C_SIZE, ADDRESS, JAVA_INT, C_SIZE));
+            daveDecryptorGetMaxPlaintextByteSize = downcallHandle(
+                    "daveDecryptorGetMaxPlaintextByteSize",
+                    FunctionDescriptor.of(C_SIZE, ADDRESS, JAVA_INT, C_SIZE),
+                    getPerFrameOptions());
 
             // DAVEDecryptorResultCode daveDecryptorDecrypt(DAVEDecryptorHandle decryptor, DAVEMediaType mediaType,
             // const uint8_t* encryptedFrame, size_t encryptedFrameLength, uint8_t* frame, size_t frameCapacity, size_t*
             // bytesWritten);
-            daveDecryptorDecrypt = LINKER.downcallHandle(
-                    SYMBOL_LOOKUP.find("daveDecryptorDecrypt").orElseThrow(),
+            daveDecryptorDecrypt = downcallHandle(
+                    "daveDecryptorDecrypt",
                     FunctionDescriptor.of(
                             JAVA_INT,
                             ADDRESS,
@@ -48,19 +46,16 @@ public class LibDaveDecryptorBinding {
                             C_SIZE,
                             ADDRESS,
                             C_SIZE,
-                            ADDRESS.withTargetLayout(C_SIZE)));
+                            ADDRESS.withTargetLayout(C_SIZE)),
+                    getPerFrameOptions());
 
             // void daveDecryptorTransitionToKeyRatchet(DAVEDecryptorHandle decryptor, DAVEKeyRatchetHandle keyRatchet);
-            daveDecryptorTransitionToKeyRatchet = LINKER.downcallHandle(
-                    SYMBOL_LOOKUP.find("daveDecryptorTransitionToKeyRatchet").orElseThrow(),
-                    FunctionDescriptor.ofVoid(ADDRESS, ADDRESS));
+            daveDecryptorTransitionToKeyRatchet =
+                    downcallHandle("daveDecryptorTransitionToKeyRatchet", FunctionDescriptor.ofVoid(ADDRESS, ADDRESS));
 
             // void daveDecryptorTransitionToPassthroughMode(DAVEDecryptorHandle decryptor, bool passthroughMode);
-            daveDecryptorTransitionToPassthroughMode = LINKER.downcallHandle(
-                    SYMBOL_LOOKUP
-                            .find("daveDecryptorTransitionToPassthroughMode")
-                            .orElseThrow(),
-                    FunctionDescriptor.ofVoid(ADDRESS, JAVA_BOOLEAN));
+            daveDecryptorTransitionToPassthroughMode = downcallHandle(
+                    "daveDecryptorTransitionToPassthroughMode", FunctionDescriptor.ofVoid(ADDRESS, JAVA_BOOLEAN));
         } catch (Throwable e) {
             throw new ExceptionInInitializerError(e);
         }
@@ -69,7 +64,7 @@ public class LibDaveDecryptorBinding {
     @NonNull
     public static MemorySegment createDecryptor() {
         try {
-            return (MemorySegment) daveDecryptorCreate.invoke();
+            return (MemorySegment) daveDecryptorCreate.invokeExact();
         } catch (Throwable e) {
             throw new LibDaveBindingException(e);
         }
@@ -77,7 +72,7 @@ public class LibDaveDecryptorBinding {
 
     public static void destroyDecryptor(@NonNull MemorySegment decryptor) {
         try {
-            daveDecryptorDestroy.invoke(decryptor);
+            daveDecryptorDestroy.invokeExact(decryptor);
         } catch (Throwable e) {
             throw new LibDaveBindingException(e);
         }
@@ -86,8 +81,8 @@ public class LibDaveDecryptorBinding {
     public static long getMaxPlaintextByteSize(
             @NonNull MemorySegment decryptor, @NonNull DaveMediaType mediaType, long encryptedFrameSize) {
         try {
-            return NativeUtils.sizeToLong(daveDecryptorGetMaxPlaintextByteSize.invoke(
-                    decryptor, mediaType.ordinal(), toSizeT(encryptedFrameSize)));
+            return (long) daveDecryptorGetMaxPlaintextByteSize.invokeExact(
+                    decryptor, mediaType.ordinal(), encryptedFrameSize);
         } catch (Throwable e) {
             throw new LibDaveBindingException(e);
         }
@@ -99,14 +94,37 @@ public class LibDaveDecryptorBinding {
             @NonNull MemorySegment encryptedFrame,
             @NonNull MemorySegment decryptedFrame,
             @NonNull MemorySegment bytesWritten) {
+        return decrypt(
+                decryptor,
+                mediaType,
+                encryptedFrame,
+                encryptedFrame.byteSize(),
+                decryptedFrame,
+                decryptedFrame.byteSize(),
+                bytesWritten);
+    }
+
+    // Only uses the given number of bytes at the start of each segment, which avoids slicing pooled buffers
+    public static int decrypt(
+            @NonNull MemorySegment decryptor,
+            @NonNull DaveMediaType mediaType,
+            @NonNull MemorySegment encryptedFrame,
+            long encryptedFrameSize,
+            @NonNull MemorySegment decryptedFrame,
+            long decryptedFrameCapacity,
+            @NonNull MemorySegment bytesWritten) {
+        if (encryptedFrameSize > encryptedFrame.byteSize() || decryptedFrameCapacity > decryptedFrame.byteSize()) {
+            throw new IllegalArgumentException("Frame sizes exceed the given segments");
+        }
+
         try {
-            return (int) daveDecryptorDecrypt.invoke(
+            return (int) daveDecryptorDecrypt.invokeExact(
                     decryptor,
                     mediaType.ordinal(),
                     encryptedFrame,
-                    toSizeT(encryptedFrame.byteSize()),
+                    encryptedFrameSize,
                     decryptedFrame,
-                    toSizeT(decryptedFrame.byteSize()),
+                    decryptedFrameCapacity,
                     bytesWritten);
         } catch (Throwable e) {
             throw new LibDaveBindingException(e);
@@ -115,7 +133,7 @@ public class LibDaveDecryptorBinding {
 
     public static void transitionToKeyRatchet(@NonNull MemorySegment decryptor, @NonNull MemorySegment keyRatchet) {
         try {
-            daveDecryptorTransitionToKeyRatchet.invoke(decryptor, keyRatchet);
+            daveDecryptorTransitionToKeyRatchet.invokeExact(decryptor, keyRatchet);
         } catch (Throwable e) {
             throw new LibDaveBindingException(e);
         }
@@ -123,7 +141,7 @@ public class LibDaveDecryptorBinding {
 
     public static void transitionToPassthroughMode(@NonNull MemorySegment decryptor, boolean passthroughMode) {
         try {
-            daveDecryptorTransitionToPassthroughMode.invoke(decryptor, passthroughMode);
+            daveDecryptorTransitionToPassthroughMode.invokeExact(decryptor, passthroughMode);
         } catch (Throwable e) {
             throw new LibDaveBindingException(e);
         }
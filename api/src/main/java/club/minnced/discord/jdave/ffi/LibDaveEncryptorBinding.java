@@ -1,7 +1,6 @@
 package club.minnced.discord.jdave.ffi;
 
 import static club.minnced.discord.jdave.ffi.LibDave.*;
-import static club.minnced.discord.jdave.ffi.NativeUtils.toSizeT;
 import static java.lang.foreign.ValueLayout.*;
 
 import java.lang.foreign.FunctionDescriptor;
@@ -23,39 +22,35 @@ public class LibDaveEncryptorBinding {
     static {
         try {
             // DAVEEncryptorHandle daveEncryptorCreate(void);
-            daveEncryptorCreate = LINKER.downcallHandle(
-                    SYMBOL_LOOKUP.find("daveEncryptorCreate").orElseThrow(), FunctionDescriptor.of(ADDRESS));
+            daveEncryptorCreate = downcallHandle("daveEncryptorCreate", FunctionDescriptor.of(ADDRESS));
 
             // void daveEncryptorDestroy(DAVEEncryptorHandle encryptor);
-            daveEncryptorDestroy = LINKER.downcallHandle(
-                    SYMBOL_LOOKUP.find("daveEncryptorDestroy").orElseThrow(), FunctionDescriptor.ofVoid(ADDRESS));
+            daveEncryptorDestroy = downcallHandle("daveEncryptorDestroy", FunctionDescriptor.ofVoid(ADDRESS));
 
             // void daveEncryptorSetKeyRatchet(DAVEEncryptorHandle encryptor, DAVEKeyRatchetHandle keyRatchet);
-            daveEncryptorSetKeyRatchet = LINKER.downcallHandle(
-                    SYMBOL_LOOKUP.find("daveEncryptorSetKeyRatchet").orElseThrow(),
-                    FunctionDescriptor.ofVoid(ADDRESS, ADDRESS));
+            daveEncryptorSetKeyRatchet =
+                    downcallHandle("daveEncryptorSetKeyRatchet", FunctionDescriptor.ofVoid(ADDRESS, ADDRESS));
 
             // void daveEncryptorSetPassthroughMode(DAVEEncryptorHandle encryptor, bool passthroughMode);
-            daveEncryptorSetPassthroughMode = LINKER.downcallHandle(
-                    SYMBOL_LOOKUP.find("daveEncryptorSetPassthroughMode").orElseThrow(),
-                    FunctionDescriptor.ofVoid(ADDRESS, JAVA_BOOLEAN));
+            daveEncryptorSetPassthroughMode =
+                    downcallHandle("daveEncryptorSetPassthroughMode", FunctionDescriptor.ofVoid(ADDRESS, JAVA_BOOLEAN));
 
             // uint16_t daveEncryptorGetProtocolVersion(DAVEEncryptorHandle encryptor);
-            daveEncryptorGetProtocolVersion = LINKER.downcallHandle(
-                    SYMBOL_LOOKUP.find("daveEncryptorGetProtocolVersion").orElseThrow(),
-                    FunctionDescriptor.of(ValueLayout.JAVA_SHORT, ADDRESS));
+            daveEncryptorGetProtocolVersion = downcallHandle(
+                    "daveEncryptorGetProtocolVersion", FunctionDescriptor.of(ValueLayout.JAVA_SHORT, ADDRESS));
 
             // size_t daveEncryptorGetMaxCiphertextByteSize(DAVEEncryptorHandle encryptor, DAVEMediaType mediaType,
             // size_t frameSize);
-            daveEncryptorGetMaxCiphertextByteSize = LINKER.downcallHandle(
-                    SYMBOL_LOOKUP.find("daveEncryptorGetMaxCiphertextByteSize").orElseThrow(),
-                    FunctionDescriptor.of(C_SIZE, ADDRESS, JAVA_INT, C_SIZE));
+            daveEncryptorGetMaxCiphertextByteSize = downcallHandle(
+                    "daveEncryptorGetMaxCiphertextByteSize",
+                    FunctionDescriptor.of(C_SIZE, ADDRESS, JAVA_INT, C_SIZE),
+                    getPerFrameOptions());
 
             // DAVEEncryptorResultCode daveEncryptorEncrypt(DAVEEncryptorHandle encryptor, DAVEMediaType mediaType,
             // uint32_t ssrc, const uint8_t* frame, size_t frameLength, uint8_t* encryptedFrame, size_t
             // encryptedFrameCapacity, size_t* bytesWritten);
-            daveEncryptorEncrypt = LINKER.downcallHandle(
-                    SYMBOL_LOOKUP.find("daveEncryptorEncrypt").orElseThrow(),
+            daveEncryptorEncrypt = downcallHandle(
+                    "daveEncryptorEncrypt",
                     FunctionDescriptor.of(
                             JAVA_INT,
                             ADDRESS,
@@ -65,12 +60,12 @@ public class LibDaveEncryptorBinding {
                             C_SIZE,
                             ADDRESS,
                             C_SIZE,
-                            ADDRESS.withTargetLayout(C_SIZE)));
+                            ADDRESS.withTargetLayout(C_SIZE)),
+                    getPerFrameOptions());
 
             // void daveEncryptorAssignSsrcToCodec(DAVEEncryptorHandle encryptor, uint32_t ssrc, DAVECodec codecType);
-            daveEncryptorAssignSsrcToCodec = LINKER.downcallHandle(
-                    SYMBOL_LOOKUP.find("daveEncryptorAssignSsrcToCodec").orElseThrow(),
-                    FunctionDescriptor.ofVoid(ADDRESS, JAVA_INT, JAVA_INT));
+            daveEncryptorAssignSsrcToCodec = downcallHandle(
+                    "daveEncryptorAssignSsrcToCodec", FunctionDescriptor.ofVoid(ADDRESS, JAVA_INT, JAVA_INT));
         } catch (Throwable e) {
             throw new ExceptionInInitializerError(e);
         }
@@ -79,7 +74,7 @@ public class LibDaveEncryptorBinding {
     @NonNull
     public static MemorySegment createEncryptor() {
         try {
-            return (MemorySegment) daveEncryptorCreate.invoke();
+            return (MemorySegment) daveEncryptorCreate.invokeExact();
         } catch (Throwable e) {
             throw new LibDaveBindingException(e);
         }
@@ -87,7 +82,7 @@ public class LibDaveEncryptorBinding {
 
     public static void destroyEncryptor(@NonNull MemorySegment encryptor) {
         try {
-            daveEncryptorDestroy.invoke(encryptor);
+            daveEncryptorDestroy.invokeExact(encryptor);
         } catch (Throwable e) {
             throw new LibDaveBindingException(e);
         }
@@ -95,7 +90,7 @@ public class LibDaveEncryptorBinding {
 
     public static void setKeyRatchet(@NonNull MemorySegment encryptor, @NonNull MemorySegment keyRatchet) {
         try {
-            daveEncryptorSetKeyRatchet.invoke(encryptor, keyRatchet);
+            daveEncryptorSetKeyRatchet.invokeExact(encryptor, keyRatchet);
         } catch (Throwable e) {
             throw new LibDaveBindingException(e);
         }
@@ -103,7 +98,7 @@ public class LibDaveEncryptorBinding {
 
     public static void setPassthroughMode(@NonNull MemorySegment encryptor, boolean passthroughMode) {
         try {
-            daveEncryptorSetPassthroughMode.invoke(encryptor, passthroughMode);
+            daveEncryptorSetPassthroughMode.invokeExact(encryptor, passthroughMode);
         } catch (Throwable e) {
             throw new LibDaveBindingException(e);
         }
@@ -111,7 +106,7 @@ public class LibDaveEncryptorBinding {
 
     public static short getProtocolVersion(@NonNull MemorySegment encryptor) {
         try {
-            return (short) daveEncryptorGetProtocolVersion.invoke(encryptor);
+            return (short) daveEncryptorGetProtocolVersion.invokeExact(encryptor);
         } catch (Throwable e) {
             throw new LibDaveBindingException(e);
         }
@@ -119,8 +114,7 @@ public class LibDaveEncryptorBinding {
 
     public static long getMaxCiphertextByteSize(@NonNull MemorySegment encryptor, int mediaType, long frameSize) {
         try {
-            return NativeUtils.sizeToLong(
-                    daveEncryptorGetMaxCiphertextByteSize.invoke(encryptor, mediaType, toSizeT(frameSize)));
+            return (long) daveEncryptorGetMaxCiphertextByteSize.invokeExact(encryptor, mediaType, frameSize);
         } catch (Throwable e) {
             throw new LibDaveBindingException(e);
         }
@@ -133,15 +127,40 @@ public class LibDaveEncryptorBinding {
             @NonNull MemorySegment frame,
             @NonNull MemorySegment encryptedFrame,
             @NonNull MemorySegment bytesWritten) {
+        return encrypt(
+                encryptor,
+                mediaType,
+                ssrc,
+                frame,
+                frame.byteSize(),
+                encryptedFrame,
+                encryptedFrame.byteSize(),
+                bytesWritten);
+    }
+
+    // Only uses the given number of bytes at the start of each segment, which avoids slicing pooled buffers
+    public static int encrypt(
+            @NonNull MemorySegment encryptor,
+            int mediaType,
+            int ssrc,
+            @NonNull MemorySegment frame,
+            long frameSize,
+            @NonNull MemorySegment encryptedFrame,
+            long encryptedFrameCapacity,
+            @NonNull MemorySegment bytesWritten) {
+        if (frameSize > frame.byteSize() || encryptedFrameCapacity > encryptedFrame.byteSize()) {
+            throw new IllegalArgumentException("Frame sizes exceed the given segments");
+        }
+
         try {
-            return (int) daveEncryptorEncrypt.invoke(
+            return (int) daveEncryptorEncrypt.invokeExact(
                     encryptor,
                     mediaType,
                     ssrc,
                     frame,
-                    toSizeT(frame.byteSize()),
+                    frameSize,
                     encryptedFrame,
-                    toSizeT(encryptedFrame.byteSize()),
+                    encryptedFrameCapacity,
                     bytesWritten);
         } catch (Throwable e) {
             throw new LibDaveBindingException(e);
@@ -150,7 +169,7 @@ public class LibDaveEncryptorBinding {
 
     public static void assignSsrcToCodec(@NonNull MemorySegment encryptor, int ssrc, int codecType) {
         try {
-            daveEncryptorAssignSsrcToCodec.invoke(encryptor, ssrc, codecType);
+            daveEncryptorAssignSsrcToCodec.invokeExact(encryptor, ssrc, codecType);
         } catch (Throwable e) {
             throw new LibDaveBindingException(e);
         }
@@ -1,7 +1,6 @@
 package club.minnced.discord.jdave.ffi;
 
-import static club.minnced.discord.jdave.ffi.LibDave.LINKER;
-import static club.minnced.discord.jdave.ffi.LibDave.SYMBOL_LOOKUP;
+import static club.minnced.discord.jdave.ffi.LibDave.downcallHandle;
 import static java.lang.foreign.ValueLayout.ADDRESS;
 
 import java.lang.foreign.FunctionDescriptor;
@@ -15,8 +14,7 @@ public class LibDaveKeyRatchetBinding {
     static {
         try {
             // void daveKeyRatchetDestroy(DAVEKeyRatchetHandle keyRatchet);
-            destroyKeyRatchet = LINKER.downcallHandle(
-                    SYMBOL_LOOKUP.find("daveKeyRatchetDestroy").orElseThrow(), FunctionDescriptor.ofVoid(ADDRESS));
+            destroyKeyRatchet = downcallHandle("daveKeyRatchetDestroy", FunctionDescriptor.ofVoid(ADDRESS));
         } catch (Throwable e) {
             throw new ExceptionInInitializerError(e);
         }
@@ -24,7 +22,7 @@ public class LibDaveKeyRatchetBinding {
 
     public static void destroyKeyRatchet(@NonNull MemorySegment segment) {
         try {
-            destroyKeyRatchet.invoke(segment);
+            destroyKeyRatchet.invokeExact(segment);
         } catch (Throwable e) {
             throw new LibDaveBindingException(e);
         }
@@ -1,7 +1,6 @@
 package club.minnced.discord.jdave.ffi;
 
 import static club.minnced.discord.jdave.ffi.LibDave.*;
-import static club.minnced.discord.jdave.ffi.NativeUtils.toSizeT;
 import static java.lang.foreign.ValueLayout.*;
 
 import java.lang.foreign.*;
@@ -33,64 +32,56 @@ public class LibDaveSessionBinding {
         try {
             // DAVESessionHandle daveSessionCreate(
             //   void* context, const char* authSessionId, DAVEMLSFailureCallback callback, void* userData);
-            daveSessionCreate = LINKER.downcallHandle(
-                    SYMBOL_LOOKUP.find("daveSessionCreate").orElseThrow(),
-                    FunctionDescriptor.of(ADDRESS, ADDRESS, ADDRESS, ADDRESS, ADDRESS));
+            daveSessionCreate = downcallHandle(
+                    "daveSessionCreate", FunctionDescriptor.of(ADDRESS, ADDRESS, ADDRESS, ADDRESS, ADDRESS));
 
             // void daveSessionDestroy(DAVESessionHandle session);
-            daveSessionDestroy = LINKER.downcallHandle(
-                    SYMBOL_LOOKUP.find("daveSessionDestroy").orElseThrow(), FunctionDescriptor.ofVoid(ADDRESS));
+            daveSessionDestroy = downcallHandle("daveSessionDestroy", FunctionDescriptor.ofVoid(ADDRESS));
 
             // void daveSessionInit(
             //   DAVESessionHandle session, uint16_t version, uint64_t groupId, const char* selfUserId);
-            daveSessionInit = LINKER.downcallHandle(
-                    SYMBOL_LOOKUP.find("daveSessionInit").orElseThrow(),
-                    FunctionDescriptor.ofVoid(ADDRESS, JAVA_SHORT, JAVA_LONG, ADDRESS));
+            daveSessionInit = downcallHandle(
+                    "daveSessionInit", FunctionDescriptor.ofVoid(ADDRESS, JAVA_SHORT, JAVA_LONG, ADDRESS));
 
             // void daveSessionReset(DAVESessionHandle session);
-            daveSessionReset = LINKER.downcallHandle(
-                    SYMBOL_LOOKUP.find("daveSessionReset").orElseThrow(), FunctionDescriptor.ofVoid(ADDRESS));
+            daveSessionReset = downcallHandle("daveSessionReset", FunctionDescriptor.ofVoid(ADDRESS));
 
             // void daveSessionSetProtocolVersion(DAVESessionHandle session, uint16_t version);
-            daveSessionSetProtocolVersion = LINKER.downcallHandle(
-                    SYMBOL_LOOKUP.find("daveSessionSetProtocolVersion").orElseThrow(),
-                    FunctionDescriptor.ofVoid(ADDRESS, JAVA_SHORT));
+            daveSessionSetProtocolVersion =
+                    downcallHandle("daveSessionSetProtocolVersion", FunctionDescriptor.ofVoid(ADDRESS, JAVA_SHORT));
 
             // uint16_t daveSessionGetProtocolVersion(DAVESessionHandle session);
-            daveSessionGetProtocolVersion = LINKER.downcallHandle(
-                    SYMBOL_LOOKUP.find("daveSessionGetProtocolVersion").orElseThrow(),
-                    FunctionDescriptor.of(JAVA_SHORT, ADDRESS));
+            daveSessionGetProtocolVersion =
+                    downcallHandle("daveSessionGetProtocolVersion", FunctionDescriptor.of(JAVA_SHORT, ADDRESS));
 
             // void daveSessionGetMarshalledKeyPackage(
             //   DAVESessionHandle session, uint8_t** keyPackage, size_t* length);
-            daveSessionGetMarshalledKeyPackage = LINKER.downcallHandle(
-                    SYMBOL_LOOKUP.find("daveSessionGetMarshalledKeyPackage").orElseThrow(),
+            daveSessionGetMarshalledKeyPackage = downcallHandle(
+                    "daveSessionGetMarshalledKeyPackage",
                     FunctionDescriptor.ofVoid(
                             ADDRESS, ADDRESS.withTargetLayout(ADDRESS), ADDRESS.withTargetLayout(C_SIZE)));
 
             // DAVEKeyRatchetHandle daveSessionGetKeyRatchet(DAVESessionHandle session, const char* userId);
-            daveSessionGetKeyRatchet = LINKER.downcallHandle(
-                    SYMBOL_LOOKUP.find("daveSessionGetKeyRatchet").orElseThrow(),
-                    FunctionDescriptor.of(ADDRESS, ADDRESS, ADDRESS));
+            daveSessionGetKeyRatchet =
+                    downcallHandle("daveSessionGetKeyRatchet", FunctionDescriptor.of(ADDRESS, ADDRESS, ADDRESS));
 
             // void daveSessionGetLastEpochAuthenticator(
             //   DAVESessionHandle session, uint8_t** authenticator, size_t* length);
-            daveSessionGetLastEpochAuthenticator = LINKER.downcallHandle(
-                    SYMBOL_LOOKUP.find("daveSessionGetLastEpochAuthenticator").orElseThrow(),
+            daveSessionGetLastEpochAuthenticator = downcallHandle(
+                    "daveSessionGetLastEpochAuthenticator",
                     FunctionDescriptor.ofVoid(
                             ADDRESS, ADDRESS.withTargetLayout(ADDRESS), ADDRESS.withTargetLayout(C_SIZE)));
 
             // void daveSessionSetExternalSender(
             //   DAVESessionHandle session, uint8_t* externalSender, size_t length);
-            daveSessionSetExternalSender = LINKER.downcallHandle(
-                    SYMBOL_LOOKUP.find("daveSessionSetExternalSender").orElseThrow(),
-                    FunctionDescriptor.ofVoid(ADDRESS, ADDRESS, C_SIZE));
+            daveSessionSetExternalSender =
+                    downcallHandle("daveSessionSetExternalSender", FunctionDescriptor.ofVoid(ADDRESS, ADDRESS, C_SIZE));
 
             // void daveSessionProcessProposals(
             //   DAVESessionHandle session, uint8_t* proposals, size_t length, char** recognizedUserIds,
             //   size_t recognizedUserIdsLength, uint8_t** commitWelcomeBytes, size_t* commitWelcomeBytesLength);
-            daveSessionProcessProposals = LINKER.downcallHandle(
-                    SYMBOL_LOOKUP.find("daveSessionProcessProposals").orElseThrow(),
+            daveSessionProcessProposals = downcallHandle(
+                    "daveSessionProcessProposals",
                     FunctionDescriptor.ofVoid(
                             ADDRESS,
                             ADDRESS.withTargetLayout(JAVA_BYTE),
@@ -102,34 +93,29 @@ public class LibDaveSessionBinding {
 
             // DAVECommitResultHandle daveSessionProcessCommit(
             //   DAVESessionHandle session, uint8_t* commit, size_t length);
-            daveSessionProcessCommit = LINKER.downcallHandle(
-                    SYMBOL_LOOKUP.find("daveSessionProcessCommit").orElseThrow(),
-                    FunctionDescriptor.of(ADDRESS, ADDRESS, ADDRESS, C_SIZE));
+            daveSessionProcessCommit = downcallHandle(
+                    "daveSessionProcessCommit", FunctionDescriptor.of(ADDRESS, ADDRESS, ADDRESS, C_SIZE));
 
             // bool daveCommitResultIsIgnored(DAVECommitResultHandle commitResultHandle);
-            daveCommitResultIsIgnored = LINKER.downcallHandle(
-                    SYMBOL_LOOKUP.find("daveCommitResultIsIgnored").orElseThrow(),
-                    FunctionDescriptor.of(JAVA_BOOLEAN, ADDRESS));
+            daveCommitResultIsIgnored =
+                    downcallHandle("daveCommitResultIsIgnored", FunctionDescriptor.of(JAVA_BOOLEAN, ADDRESS));
 
             // bool daveCommitResultIsFailed(DAVECommitResultHandle commitResultHandle);
-            daveCommitResultIsFailed = LINKER.downcallHandle(
-                    SYMBOL_LOOKUP.find("daveCommitResultIsFailed").orElseThrow(),
-                    FunctionDescriptor.of(JAVA_BOOLEAN, ADDRESS));
+            daveCommitResultIsFailed =
+                    downcallHandle("daveCommitResultIsFailed", FunctionDescriptor.of(JAVA_BOOLEAN, ADDRESS));
 
             // void daveCommitResultDestroy(DAVECommitResultHandle commitResultHandle);
-            daveCommitResultDestroy = LINKER.downcallHandle(
-                    SYMBOL_LOOKUP.find("daveCommitResultDestroy").orElseThrow(), FunctionDescriptor.ofVoid(ADDRESS));
+            daveCommitResultDestroy = downcallHandle("daveCommitResultDestroy", FunctionDescriptor.ofVoid(ADDRESS));
 
             // DAVEWelcomeResultHandle daveSessionProcessWelcome(
             //   DAVESessionHandle session, uint8_t* welcome, size_t length,
             //   char** recognizedUserIds, size_t recognizedUserIdsLength);
-            daveSessionProcessWelcome = LINKER.downcallHandle(
-                    SYMBOL_LOOKUP.find("daveSessionProcessWelcome").orElseThrow(),
+            daveSessionProcessWelcome = downcallHandle(
+                    "daveSessionProcessWelcome",
                     FunctionDescriptor.of(ADDRESS, ADDRESS, ADDRESS, C_SIZE, ADDRESS, C_SIZE));
 
             // void daveWelcomeResultDestroy(DAVEWelcomeResultHandle welcomeResultHandle);
-            daveWelcomeResultDestroy = LINKER.downcallHandle(
-                    SYMBOL_LOOKUP.find("daveWelcomeResultDestroy").orElseThrow(), FunctionDescriptor.ofVoid(ADDRESS));
+            daveWelcomeResultDestroy = downcallHandle("daveWelcomeResultDestroy", FunctionDescriptor.ofVoid(ADDRESS));
         } catch (Throwable e) {
             throw new ExceptionInInitializerError(e);
         }
@@ -139,7 +125,7 @@ public class LibDaveSessionBinding {
     public static MemorySegment createSession(@NonNull MemorySegment context, @NonNull MemorySegment authSessionId) {
         try {
             return (MemorySegment)
-                    daveSessionCreate.invoke(context, authSessionId, MemorySegment.NULL, MemorySegment.NULL);
+                    daveSessionCreate.invokeExact(context, authSessionId, MemorySegment.NULL, MemorySegment.NULL);
         } catch (Throwable e) {
             throw new LibDaveBindingException(e);
         }
@@ -147,7 +133,7 @@ public class LibDaveSessionBinding {
 
     public static void destroySession(@NonNull MemorySegment session) {
         try {
-            daveSessionDestroy.invoke(session);
+            daveSessionDestroy.invokeExact(session);
         } catch (Throwable e) {
             throw new LibDaveBindingException(e);
         }
@@ -156,7 +142,7 @@ public class LibDaveSessionBinding {
     public static void initializeSession(
             @NonNull MemorySegment session, short version, long groupId, @NonNull MemorySegment selfUserId) {
         try {
-            daveSessionInit.invoke(session, version, groupId, selfUserId);
+            daveSessionInit.invokeExact(session, version, groupId, selfUserId);
         } catch (Throwable e) {
             throw new LibDaveBindingException(e);
         }
@@ -164,7 +150,7 @@ public class LibDaveSessionBinding {
 
     public static void resetSession(@NonNull MemorySegment session) {
         try {
-            daveSessionReset.invoke(session);
+            daveSessionReset.invokeExact(session);
         } catch (Throwable e) {
             throw new LibDaveBindingException(e);
         }
@@ -172,7 +158,7 @@ public class LibDaveSessionBinding {
 
     public static void setProtocolVersion(@NonNull MemorySegment session, short version) {
         try {
-            daveSessionSetProtocolVersion.invoke(session, version);
+            daveSessionSetProtocolVersion.invokeExact(session, version);
         } catch (Throwable e) {
             throw new LibDaveBindingException(e);
         }
@@ -180,7 +166,7 @@ public class LibDaveSessionBinding {
 
     public static short getProtocolVersion(@NonNull MemorySegment session) {
         try {
-            return (short) daveSessionGetProtocolVersion.invoke(session);
+            return (short) daveSessionGetProtocolVersion.invokeExact(session);
         } catch (Throwable e) {
             throw new LibDaveBindingException(e);
         }
@@ -192,7 +178,7 @@ public class LibDaveSessionBinding {
             MemorySegment sizePtr = local.allocate(C_SIZE);
             MemorySegment arrayPtr = local.allocate(ADDRESS.withTargetLayout(ADDRESS));
 
-            daveSessionGetMarshalledKeyPackage.invoke(session, arrayPtr, sizePtr);
+            daveSessionGetMarshalledKeyPackage.invokeExact(session, arrayPtr, sizePtr);
 
             return getByteArrayFromRawParts(arrayPtr, sizePtr);
         } catch (Throwable e) {
@@ -203,7 +189,7 @@ public class LibDaveSessionBinding {
     @NonNull
     public static MemorySegment getKeyRatchet(@NonNull MemorySegment session, @NonNull MemorySegment userId) {
         try {
-            return (MemorySegment) daveSessionGetKeyRatchet.invoke(session, userId);
+            return (MemorySegment) daveSessionGetKeyRatchet.invokeExact(session, userId);
         } catch (Throwable e) {
             throw new LibDaveBindingException(e);
         }
@@ -214,7 +200,7 @@ public class LibDaveSessionBinding {
         try (Arena local = Arena.ofConfined()) {
             MemorySegment sizePtr = local.allocate(C_SIZE);
             MemorySegment arrayPtr = local.allocate(ADDRESS.withTargetLayout(ADDRESS));
-            daveSessionGetLastEpochAuthenticator.invoke(session, arrayPtr, sizePtr);
+            daveSessionGetLastEpochAuthenticator.invokeExact(session, arrayPtr, sizePtr);
 
             return getByteArrayFromRawParts(arrayPtr, sizePtr);
         } catch (Throwable e) {
@@ -224,8 +210,8 @@ public class LibDaveSessionBinding {
 
     public static void setExternalSender(@NonNull MemorySegment session, @NonNull ByteBuffer externalSenderPackage) {
         try {
-            daveSessionSetExternalSender.invoke(
-                    session, MemorySegment.ofBuffer(externalSenderPackage), externalSenderPackage.remaining());
+            daveSessionSetExternalSender.invokeExact(
+                    session, MemorySegment.ofBuffer(externalSenderPackage), (long) externalSenderPackage.remaining());
         } catch (Throwable e) {
             throw new LibDaveBindingException(e);
         }
@@ -242,12 +228,12 @@ public class LibDaveSessionBinding {
             MemorySegment welcomeArrayPtr = local.allocate(ADDRESS.withTargetLayout(ADDRESS));
             MemorySegment recognizedUserIdsArray = allocateStringArray(local, recognizedUserIds);
 
-            daveSessionProcessProposals.invoke(
+            daveSessionProcessProposals.invokeExact(
                     session,
                     MemorySegment.ofBuffer(proposals),
-                    toSizeT(proposals.remaining()),
+                    (long) proposals.remaining(),
                     recognizedUserIdsArray,
-                    toSizeT(recognizedUserIds.size()),
+                    (long) recognizedUserIds.size(),
                     welcomeArrayPtr,
                     welcomeSizePtr);
 
@@ -260,8 +246,8 @@ public class LibDaveSessionBinding {
     @NonNull
     public static MemorySegment processCommit(@NonNull MemorySegment session, @NonNull ByteBuffer commit) {
         try {
-            return (MemorySegment) daveSessionProcessCommit.invoke(
-                    session, MemorySegment.ofBuffer(commit), toSizeT(commit.remaining()));
+            return (MemorySegment) daveSessionProcessCommit.invokeExact(
+                    session, MemorySegment.ofBuffer(commit), (long) commit.remaining());
         } catch (Throwable e) {
             throw new LibDaveBindingException(e);
         }
@@ -269,7 +255,7 @@ public class LibDaveSessionBinding {
 
     public static boolean isCommitIgnored(@NonNull MemorySegment processedCommit) {
         try {
-            return (boolean) daveCommitResultIsIgnored.invoke(processedCommit);
+            return (boolean) daveCommitResultIsIgnored.invokeExact(processedCommit);
         } catch (Throwable e) {
             throw new LibDaveBindingException(e);
         }
@@ -277,7 +263,7 @@ public class LibDaveSessionBinding {
 
     public static boolean isCommitFailure(@NonNull MemorySegment processedCommit) {
         try {
-            return (boolean) daveCommitResultIsFailed.invoke(processedCommit);
+            return (boolean) daveCommitResultIsFailed.invokeExact(processedCommit);
         } catch (Throwable e) {
             throw new LibDaveBindingException(e);
         }
@@ -289,7 +275,7 @@ public class LibDaveSessionBinding {
 
     public static void destroyCommitResult(@NonNull MemorySegment processedCommit) {
         try {
-            daveCommitResultDestroy.invoke(processedCommit);
+            daveCommitResultDestroy.invokeExact(processedCommit);
         } catch (Throwable e) {
             throw new LibDaveBindingException(e);
         }
@@ -304,12 +290,12 @@ public class LibDaveSessionBinding {
         try (Arena local = Arena.ofConfined()) {
             MemorySegment recognizedUserIdsArray = allocateStringArray(local, recognizedUserIds);
 
-            return (MemorySegment) daveSessionProcessWelcome.invoke(
+            return (MemorySegment) daveSessionProcessWelcome.invokeExact(
                     session,
                     MemorySegment.ofBuffer(welcome),
-                    toSizeT(welcome.remaining()),
+                    (long) welcome.remaining(),
                     recognizedUserIdsArray,
-                    toSizeT(recognizedUserIds.size()));
+                    (long) recognizedUserIds.size());
         } catch (Throwable e) {
             throw new LibDaveBindingException(e);
         }
@@ -317,7 +303,7 @@ public class LibDaveSessionBinding {
 
     public static void destroyWelcomeResult(@NonNull MemorySegment welcomeResult) {
         try {
-            daveWelcomeResultDestroy.invoke(welcomeResult);
+            daveWelcomeResultDestroy.invokeExact(welcomeResult);
         } catch (Throwable e) {
             throw new LibDaveBindingException(e);
         }
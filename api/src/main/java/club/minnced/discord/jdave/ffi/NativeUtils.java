@@ -13,12 +13,4 @@ public class NativeUtils {
     public static boolean isNull(@Nullable MemorySegment segment) {
         return segment == null || MemorySegment.NULL.equals(segment);
     }
-
-    static Object toSizeT(long number) {
-        return LibDave.C_SIZE.byteSize() == 8 ? number : (int) number;
-    }
-
-    static long sizeToLong(@NonNull Object size) {
-        return ((Number) size).longValue();
-    }
 }
@@ -3,19 +3,32 @@ package club.minnced.discord.jdave.interop;
 import club.minnced.discord.jdave.*;
 import club.minnced.discord.jdave.DaveDecryptor.DaveDecryptResultType;
 import club.minnced.discord.jdave.DaveEncryptor.DaveEncryptResultType;
+import club.minnced.discord.jdave.manager.DaveRuntime;
 import club.minnced.discord.jdave.manager.DaveSessionManager;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import net.dv8tion.jda.api.audio.dave.DaveProtocolCallbacks;
 import net.dv8tion.jda.api.audio.dave.DaveSession;
 import org.jspecify.annotations.NonNull;
 
 public class JDaveSession implements DaveSession {
+    private static final DaveMediaType[] MEDIA_TYPES = Arrays.stream(MediaType.values())
+            .map(type -> mapMediaTypeName(type.name()))
+            .toArray(DaveMediaType[]::new);
+    private static final DaveCodec[] CODECS =
+            Arrays.stream(Codec.values()).map(codec -> mapCodecName(codec.name())).toArray(DaveCodec[]::new);
+
     private final DaveSessionManager manager;
 
     public JDaveSession(long selfUserId, long channelId, @NonNull DaveProtocolCallbacks callbacks) {
         this.manager = DaveSessionManager.create(selfUserId, channelId, new JDaveSessionManagerCallbacks(callbacks));
     }
 
+    public JDaveSession(
+            @NonNull DaveRuntime runtime, long selfUserId, long channelId, @NonNull DaveProtocolCallbacks callbacks) {
+        this.manager = runtime.createSession(selfUserId, channelId, new JDaveSessionManagerCallbacks(callbacks));
+    }
+
     @Override
     public int getMaxProtocolVersion() {
         return manager.getMaxProtocolVersion();
@@ -135,19 +148,34 @@ public class JDaveSession implements DaveSession {
 
     @NonNull
     private DaveMediaType mapMediaType(@NonNull MediaType mediaType) {
-        if (mediaType == MediaType.AUDIO) {
-            return DaveMediaType.AUDIO;
-        }
-
-        return DaveMediaType.UNKNOWN;
+        return MEDIA_TYPES[mediaType.ordinal()];
     }
 
     @NonNull
     private DaveCodec mapCodec(@NonNull Codec codec) {
-        if (codec == Codec.OPUS) {
-            return DaveCodec.OPUS;
-        }
+        return CODECS[codec.ordinal()];
+    }
 
-        return DaveCodec.UNKNOWN;
+    // Resolved by name once, so that JDA adding or reordering constants can't silently map to the wrong type
+    @NonNull
+    private static DaveMediaType mapMediaTypeName(@NonNull String name) {
+        return switch (name) {
+            case "AUDIO" -> DaveMediaType.AUDIO;
+            case "VIDEO" -> DaveMediaType.VIDEO;
+            default -> DaveMediaType.UNKNOWN;
+        };
+    }
+
+    @NonNull
+    private static DaveCodec mapCodecName(@NonNull String name) {
+        return switch (name) {
+            case "OPUS" -> DaveCodec.OPUS;
+            case "VP8" -> DaveCodec.VP8;
+            case "VP9" -> DaveCodec.VP9;
+            case "H264" -> DaveCodec.H264;
+            case "H265" -> DaveCodec.H265;
+            case "AV1" -> DaveCodec.AV1;
+            default -> DaveCodec.UNKNOWN;
+        };
     }
 }
@@ -1,14 +1,31 @@
 package club.minnced.discord.jdave.interop;
 
+import club.minnced.discord.jdave.manager.DaveRuntime;
 import net.dv8tion.jda.api.audio.dave.DaveProtocolCallbacks;
 import net.dv8tion.jda.api.audio.dave.DaveSession;
 import net.dv8tion.jda.api.audio.dave.DaveSessionFactory;
 import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
 
 public class JDaveSessionFactory implements DaveSessionFactory {
+    private final @Nullable DaveRuntime runtime;
+
+    public JDaveSessionFactory() {
+        this(null);
+    }
+
+    // Sessions created by this factory share the resources of the runtime
+    public JDaveSessionFactory(@Nullable DaveRuntime runtime) {
+        this.runtime = runtime;
+    }
+
     @NonNull
     @Override
     public DaveSession createDaveSession(@NonNull DaveProtocolCallbacks callbacks, long userId, long channelId) {
+        if (runtime != null) {
+            return new JDaveSession(runtime, userId, channelId, callbacks);
+        }
+
         return new JDaveSession(userId, channelId, callbacks);
     }
 }
@@ -0,0 +1,320 @@
+package club.minnced.discord.jdave.manager;
+
+import club.minnced.discord.jdave.DaveDecryptor.DaveDecryptResultType;
+import club.minnced.discord.jdave.DaveMediaType;
+import club.minnced.discord.jdave.utils.BoundedMpmcQueue;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Decrypts received frames on worker threads instead of the receiving thread. Frames are sharded by user,
+// so all frames of a speaker are decrypted in order by the same worker, which is also the only thread that
+// ever touches the decryptor of that user.
+public class DaveDecryptPipeline implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(DaveDecryptPipeline.class);
+    private static final int MAX_DEFAULT_WORKERS = 4;
+
+    private final DaveSessionManager manager;
+    private final DaveDecryptCallback callback;
+    private final OverflowPolicy overflowPolicy;
+    private final Worker[] workers;
+    private final LongAdder droppedFrames = new LongAdder();
+    // Submits that passed the closed check, close waits for them so no frame is queued after the workers exit
+    private final AtomicInteger activeSubmits = new AtomicInteger();
+    private volatile boolean closed;
+    // Set once no more frames can be queued, workers exit when their queue is empty afterwards
+    private volatile boolean drained;
+
+    private DaveDecryptPipeline(@NonNull Builder builder) {
+        this.manager = builder.manager;
+        this.callback = builder.callback;
+        this.overflowPolicy = builder.overflowPolicy;
+        this.workers = new Worker[builder.workers];
+
+        ThreadFactory threadFactory = builder.threadFactory != null ? builder.threadFactory : defaultThreadFactory();
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker(builder.queueCapacity);
+            workers[i].thread = threadFactory.newThread(workers[i]);
+        }
+        for (Worker worker : workers) {
+            worker.thread.start();
+        }
+    }
+
+    @NonNull
+    public static Builder builder(@NonNull DaveSessionManager manager, @NonNull DaveDecryptCallback callback) {
+        return new Builder(manager, callback);
+    }
+
+    // Queues the frame for decryption, the buffers must not be touched until the callback was invoked for them.
+    // Returns false if the frame was dropped, in which case the callback is not invoked.
+    public boolean submit(
+            @NonNull DaveMediaType type, long userId, @NonNull ByteBuffer encrypted, @NonNull ByteBuffer decrypted) {
+        activeSubmits.incrementAndGet();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Cannot submit frames to a closed pipeline");
+            }
+
+            return offer(type, userId, encrypted, decrypted);
+        } finally {
+            activeSubmits.decrementAndGet();
+        }
+    }
+
+    private boolean offer(
+            @NonNull DaveMediaType type, long userId, @NonNull ByteBuffer encrypted, @NonNull ByteBuffer decrypted) {
+        Worker worker = workers[shard(userId, workers.length)];
+        Frame frame = new Frame(type, userId, encrypted, decrypted);
+
+        if (!worker.queue.offer(frame) && (overflowPolicy == OverflowPolicy.DROP || !worker.awaitOffer(frame))) {
+            droppedFrames.increment();
+            return false;
+        }
+
+        worker.wakeUp();
+        return true;
+    }
+
+    // Snowflakes of users that joined around the same time share most of their bits, so the id is mixed first
+    static int shard(long userId, int shards) {
+        long mixed = userId * 0x9E3779B97F4A7C15L;
+        return (int) ((mixed >>> 32) % shards);
+    }
+
+    public int getWorkerCount() {
+        return workers.length;
+    }
+
+    // Frames that were not decrypted because the queue of their worker was full
+    public long getDroppedFrames() {
+        return droppedFrames.sum();
+    }
+
+    // Number of frames waiting for a worker
+    public int getQueuedFrames() {
+        int queued = 0;
+        for (Worker worker : workers) {
+            queued += worker.queue.size();
+        }
+        return queued;
+    }
+
+    // Stops accepting frames and waits for the workers to decrypt all frames that were already queued
+    @Override
+    public void close() {
+        closed = true;
+        for (Worker worker : workers) {
+            worker.signalNotFull();
+        }
+        while (activeSubmits.get() > 0) {
+            Thread.yield();
+        }
+
+        drained = true;
+        for (Worker worker : workers) {
+            LockSupport.unpark(worker.thread);
+        }
+
+        boolean interrupted = false;
+        for (Worker worker : workers) {
+            if (worker.thread == Thread.currentThread()) {
+                continue;
+            }
+
+            while (worker.thread.isAlive()) {
+                try {
+                    worker.thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @NonNull
+    private static ThreadFactory defaultThreadFactory() {
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "jdave-decrypt-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private record Frame(
+            @NonNull DaveMediaType type, long userId, @NonNull ByteBuffer encrypted, @NonNull ByteBuffer decrypted) {}
+
+    private class Worker implements Runnable {
+        private final BoundedMpmcQueue<Frame> queue;
+        private volatile boolean parked;
+        private Thread thread;
+        // Producers blocked on a full queue with the BLOCK policy
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notFull = lock.newCondition();
+        private final AtomicInteger blockedProducers = new AtomicInteger();
+
+        private Worker(int capacity) {
+            this.queue = new BoundedMpmcQueue<>(capacity);
+        }
+
+        private void wakeUp() {
+            if (parked) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        // Parks the producer until the frame fits into the queue, returns false if the pipeline was closed meanwhile
+        private boolean awaitOffer(@NonNull Frame frame) {
+            // Registered before retrying, so the worker either frees a slot before the retry or signals afterwards
+            blockedProducers.incrementAndGet();
+            lock.lock();
+            try {
+                while (!queue.offer(frame)) {
+                    if (closed) {
+                        return false;
+                    }
+
+                    wakeUp();
+                    notFull.awaitUninterruptibly();
+                }
+                return true;
+            } finally {
+                lock.unlock();
+                blockedProducers.decrementAndGet();
+            }
+        }
+
+        private void signalNotFull() {
+            lock.lock();
+            try {
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Frame frame = queue.poll();
+                if (frame != null) {
+                    if (blockedProducers.get() > 0) {
+                        signalNotFull();
+                    }
+                    decrypt(frame);
+                    continue;
+                }
+
+                if (drained && queue.isEmpty()) {
+                    return;
+                }
+
+                // Producers check the flag after offering, so either they see it or we see their frame.
+                // Spurious wakeups only cause another poll, so idle workers do not need a timeout.
+                parked = true;
+                if (queue.isEmpty() && !drained) {
+                    LockSupport.park(this);
+                }
+                parked = false;
+            }
+        }
+
+        private void decrypt(@NonNull Frame frame) {
+            DaveDecryptResultType result;
+            try {
+                result = manager.decrypt(frame.type(), frame.userId(), frame.encrypted(), frame.decrypted());
+            } catch (RuntimeException e) {
+                log.error("Failed to decrypt frame of user {}", frame.userId(), e);
+                result = DaveDecryptResultType.FAILURE;
+            }
+
+            try {
+                callback.onFrameDecrypted(frame.type(), frame.userId(), frame.encrypted(), frame.decrypted(), result);
+            } catch (RuntimeException e) {
+                log.error("Uncaught exception in decrypt callback", e);
+            }
+        }
+    }
+
+    public enum OverflowPolicy {
+        // Discard the new frame, so a slow consumer never stalls the receiving thread
+        DROP,
+        // Wait for the worker to catch up, which pushes back on the receiving thread
+        BLOCK,
+    }
+
+    public interface DaveDecryptCallback {
+        // Called on the worker thread of the user, the decrypted buffer is limited to the plaintext on success
+        void onFrameDecrypted(
+                @NonNull DaveMediaType type,
+                long userId,
+                @NonNull ByteBuffer encrypted,
+                @NonNull ByteBuffer decrypted,
+                @NonNull DaveDecryptResultType result);
+    }
+
+    public static class Builder {
+        private final DaveSessionManager manager;
+        private final DaveDecryptCallback callback;
+        private int workers =
+                Math.min(MAX_DEFAULT_WORKERS, Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+        private int queueCapacity = 1024;
+        private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+        private @Nullable ThreadFactory threadFactory;
+
+        private Builder(@NonNull DaveSessionManager manager, @NonNull DaveDecryptCallback callback) {
+            this.manager = manager;
+            this.callback = callback;
+        }
+
+        // Defaults to one worker per core up to 4, leaving one core for the receiving thread
+        @NonNull
+        public Builder setWorkers(int workers) {
+            if (workers < 1) {
+                throw new IllegalArgumentException("Worker count must be positive, was " + workers);
+            }
+            this.workers = workers;
+            return this;
+        }
+
+        // Frames each worker can hold before the overflow policy applies, rounded up to a power of two
+        @NonNull
+        public Builder setQueueCapacity(int queueCapacity) {
+            if (queueCapacity < 1) {
+                throw new IllegalArgumentException("Queue capacity must be positive, was " + queueCapacity);
+            }
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        @NonNull
+        public Builder setOverflowPolicy(@NonNull OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        @NonNull
+        public Builder setThreadFactory(@Nullable ThreadFactory threadFactory) {
+            this.threadFactory = threadFactory;
+            return this;
+        }
+
+        @NonNull
+        public DaveDecryptPipeline build() {
+            return new DaveDecryptPipeline(this);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package club.minnced.discord.jdave.manager;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("club.minnced.discord.jdave.MlsOperation")
+@Label("DAVE MLS Operation")
+@Category({"JDAVE", "Control Plane"})
+@Description("An MLS operation of a DAVE session, performed on the thread handling the voice gateway")
+@StackTrace(false)
+final class DaveMlsOperationEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Channel ID")
+    long channelId;
+
+    @Label("Transition ID")
+    @Description("Transition the operation belongs to, or -1 if there is none")
+    int transitionId = -1;
+
+    @Label("Epoch")
+    @Description("Most recent MLS epoch known to the session")
+    long epoch;
+
+    @Label("Protocol Version")
+    int protocolVersion;
+
+    @Label("Member Count")
+    int memberCount;
+
+    @Label("Success")
+    boolean success;
+}
@@ -0,0 +1,260 @@
+package club.minnced.discord.jdave.manager;
+
+import club.minnced.discord.jdave.metrics.DaveMetricsCollector;
+import club.minnced.discord.jdave.utils.DaveBufferPool;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Resources shared by all sessions of a process, so that hosting many voice connections does not
+// multiply threads and bookkeeping by the number of sessions.
+public class DaveRuntime implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(DaveRuntime.class);
+
+    private final Executor controlPlaneExecutor;
+    private final @Nullable ExecutorService ownedExecutor;
+    private final @Nullable DaveMetricsCollector metrics;
+    private final DaveBufferPool bufferPool;
+    private final boolean ownsBufferPool;
+    private final int maxSessions;
+    private final boolean lazyKeying;
+
+    private final Set<DaveSessionManager> sessions = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger sessionCount = new AtomicInteger();
+    private volatile boolean closed;
+
+    private DaveRuntime(@NonNull Builder builder) {
+        if (builder.controlPlaneExecutor != null) {
+            this.controlPlaneExecutor = builder.controlPlaneExecutor;
+            this.ownedExecutor = null;
+        } else {
+            ExecutorService executor =
+                    createControlPlaneExecutor(builder.controlPlaneThreads, builder.controlPlaneQueueSize);
+            this.controlPlaneExecutor = executor;
+            this.ownedExecutor = executor;
+        }
+
+        this.metrics = builder.metricsEnabled ? DaveMetricsCollector.create(builder.metricsParent) : null;
+        this.maxSessions = builder.maxSessions;
+        this.lazyKeying = builder.lazyKeying;
+        this.ownsBufferPool = builder.bufferPool == null;
+        this.bufferPool = builder.bufferPool != null ? builder.bufferPool : new DaveBufferPool();
+    }
+
+    @NonNull
+    public static DaveRuntime create() {
+        return builder().build();
+    }
+
+    @NonNull
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @NonNull
+    public DaveSessionManager createSession(
+            long selfUserId, long channelId, @NonNull DaveSessionManagerCallbacks callbacks) {
+        return createSession(selfUserId, channelId, callbacks, null);
+    }
+
+    @NonNull
+    public DaveSessionManager createSession(
+            long selfUserId,
+            long channelId,
+            @NonNull DaveSessionManagerCallbacks callbacks,
+            @Nullable String authSessionId) {
+        if (closed) {
+            throw new IllegalStateException("Cannot create sessions on a closed runtime");
+        }
+
+        if (sessionCount.incrementAndGet() > maxSessions) {
+            sessionCount.decrementAndGet();
+            throw new IllegalStateException("Reached the maximum of " + maxSessions + " concurrent sessions");
+        }
+
+        try {
+            DaveSessionManager manager =
+                    DaveSessionManager.create(selfUserId, channelId, callbacks, authSessionId, bufferPool);
+            manager.attach(this);
+            sessions.add(manager);
+            return manager;
+        } catch (RuntimeException e) {
+            sessionCount.decrementAndGet();
+            throw e;
+        }
+    }
+
+    void unregister(@NonNull DaveSessionManager manager) {
+        if (sessions.remove(manager)) {
+            sessionCount.decrementAndGet();
+        }
+    }
+
+    @NonNull
+    public Executor getControlPlaneExecutor() {
+        return controlPlaneExecutor;
+    }
+
+    // Aggregates the metrics of every session of this runtime, null if metrics are disabled
+    @Nullable
+    public DaveMetricsCollector getMetrics() {
+        return metrics;
+    }
+
+    // Frame buffers shared by all sessions of this runtime
+    @NonNull
+    public DaveBufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    public int getSessionCount() {
+        return sessionCount.get();
+    }
+
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+
+    public boolean isLazyKeying() {
+        return lazyKeying;
+    }
+
+    @NonNull
+    public List<@NonNull DaveSessionManager> getSessions() {
+        return List.copyOf(sessions);
+    }
+
+    public void closeAll() {
+        for (DaveSessionManager manager : getSessions()) {
+            try {
+                manager.close();
+            } catch (RuntimeException e) {
+                log.error("Failed to close session", e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        closeAll();
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+        if (ownsBufferPool) {
+            bufferPool.close();
+        }
+    }
+
+    @NonNull
+    private static ExecutorService createControlPlaneExecutor(int threads, int queueSize) {
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "jdave-control-plane-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        // When the queue is full, the gateway thread does the work itself instead of failing the transition
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                30,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueSize),
+                threadFactory,
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    public static class Builder {
+        private @Nullable Executor controlPlaneExecutor;
+        private int controlPlaneThreads = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+        private int controlPlaneQueueSize = 4096;
+        private boolean metricsEnabled = true;
+        private @Nullable DaveMetricsCollector metricsParent = DaveMetricsCollector.global();
+        private int maxSessions = Integer.MAX_VALUE;
+        private @Nullable DaveBufferPool bufferPool;
+        private boolean lazyKeying;
+
+        private Builder() {}
+
+        // Uses this executor for control-plane work instead of a bounded pool owned by the runtime
+        @NonNull
+        public Builder setControlPlaneExecutor(@Nullable Executor controlPlaneExecutor) {
+            this.controlPlaneExecutor = controlPlaneExecutor;
+            return this;
+        }
+
+        @NonNull
+        public Builder setControlPlaneThreads(int controlPlaneThreads) {
+            if (controlPlaneThreads < 1) {
+                throw new IllegalArgumentException("Thread count must be positive, was " + controlPlaneThreads);
+            }
+            this.controlPlaneThreads = controlPlaneThreads;
+            return this;
+        }
+
+        @NonNull
+        public Builder setControlPlaneQueueSize(int controlPlaneQueueSize) {
+            if (controlPlaneQueueSize < 1) {
+                throw new IllegalArgumentException("Queue size must be positive, was " + controlPlaneQueueSize);
+            }
+            this.controlPlaneQueueSize = controlPlaneQueueSize;
+            return this;
+        }
+
+        @NonNull
+        public Builder setMetricsEnabled(boolean metricsEnabled) {
+            this.metricsEnabled = metricsEnabled;
+            return this;
+        }
+
+        // Collector the runtime metrics aggregate into, the global collector by default
+        @NonNull
+        public Builder setMetricsParent(@Nullable DaveMetricsCollector metricsParent) {
+            this.metricsParent = metricsParent;
+            return this;
+        }
+
+        @NonNull
+        public Builder setMaxSessions(int maxSessions) {
+            if (maxSessions < 1) {
+                throw new IllegalArgumentException("Session limit must be positive, was " + maxSessions);
+            }
+            this.maxSessions = maxSessions;
+            return this;
+        }
+
+        // Pool shared with other runtimes, by default each runtime has its own pool which is freed on close
+        @NonNull
+        public Builder setBufferPool(@Nullable DaveBufferPool bufferPool) {
+            this.bufferPool = bufferPool;
+            return this;
+        }
+
+        // Sessions only create and key the decryptor of a user once their first frame arrives
+        @NonNull
+        public Builder setLazyKeying(boolean lazyKeying) {
+            this.lazyKeying = lazyKeying;
+            return this;
+        }
+
+        @NonNull
+        public DaveRuntime build() {
+            return new DaveRuntime(this);
+        }
+    }
+}
@@ -1,17 +1,35 @@
 package club.minnced.discord.jdave.manager;
 
-import static club.minnced.discord.jdave.DaveConstants.DISABLED_PROTOCOL_VERSION;
 import static club.minnced.discord.jdave.DaveConstants.MLS_NEW_GROUP_EXPECTED_EPOCH;
 
 import club.minnced.discord.jdave.*;
 import club.minnced.discord.jdave.DaveDecryptor.DaveDecryptResultType;
 import club.minnced.discord.jdave.DaveEncryptor.DaveEncryptResultType;
+import club.minnced.discord.jdave.DaveFrameClassifier.DaveFrameType;
 import club.minnced.discord.jdave.ffi.LibDave;
+import club.minnced.discord.jdave.metrics.DaveFailureCause;
+import club.minnced.discord.jdave.metrics.DaveMetrics;
+import club.minnced.discord.jdave.metrics.DaveMetricsCollector;
+import club.minnced.discord.jdave.utils.ConcurrentLongMap;
+import club.minnced.discord.jdave.utils.DaveBufferPool;
+import club.minnced.discord.jdave.utils.DaveBufferPool.Lease;
+import java.lang.foreign.MemorySegment;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.LongStream;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
@@ -19,6 +37,17 @@ import org.slf4j.LoggerFactory;
 
 public class DaveSessionManager implements AutoCloseable {
     private static final Logger log = LoggerFactory.getLogger(DaveSessionManager.class);
+    // Below this many decryptors, handing the work to another thread costs more than it saves
+    private static final int PARALLEL_TRANSITION_THRESHOLD = 8;
+    private static final VarHandle STATE;
+
+    static {
+        try {
+            STATE = MethodHandles.lookup().findVarHandle(DaveSessionManager.class, "state", DaveSessionState.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
 
     private final long selfUserId;
     private final long channelId;
@@ -26,25 +55,50 @@ public class DaveSessionManager implements AutoCloseable {
     private final DaveSessionManagerCallbacks callbacks;
     private final DaveSessionImpl session;
     private final DaveEncryptor encryptor;
-    private final Map<Long, DaveDecryptor> decryptors = new ConcurrentHashMap<>();
-    private final Map<Integer, Integer> preparedTransitions = new ConcurrentHashMap<>();
-
-    private int currentProtocolVersion = DISABLED_PROTOCOL_VERSION;
+    private final DaveBufferPool bufferPool;
+    // Every user in the call, decryptors are only created for members
+    private final ConcurrentLongMap<Boolean> members = new ConcurrentLongMap<>();
+    private final ConcurrentLongMap<DaveDecryptor> decryptors = new ConcurrentLongMap<>();
+    // Guards publishing and removing decryptors, so a lazily created decryptor never outlives its member
+    private final Object decryptorLock = new Object();
+    private volatile boolean lazyKeying;
+    // Explicit subscriptions, users without an entry follow subscribeByDefault
+    private final ConcurrentLongMap<Boolean> subscriptions = new ConcurrentLongMap<>();
+    private final Object subscriptionLock = new Object();
+    private volatile boolean subscribeByDefault = true;
+
+    // Serializes every use of the native MLS session. Gateway handlers hold it for the whole operation, including
+    // the ratchet derivation they fan out to the transition executor, so the session is never mutated while
+    // ratchets are derived. Keying requests from other threads only record the user in pendingKeys, the keys are
+    // derived by a control-plane task or by the holder of the lock before it releases it.
+    private final ReentrantLock sessionLock = new ReentrantLock();
+    private final ConcurrentLongMap<Boolean> pendingKeys = new ConcurrentLongMap<>();
+    private final AtomicBoolean keyingScheduled = new AtomicBoolean();
+    private volatile boolean closed;
+
+    // Replaced with a CAS on every change, the MLS epoch is announced by the gateway and advanced by every commit
+    private volatile DaveSessionState state = DaveSessionState.INITIAL;
+    private volatile @Nullable Executor transitionExecutor;
+    private volatile DaveMetrics metrics = DaveMetrics.NOOP;
+    private final Map<Integer, DaveTransitionEvent> transitionEvents = new ConcurrentHashMap<>();
+    private volatile @Nullable DaveRuntime runtime;
 
     private DaveSessionManager(long selfUserId, long channelId, @NonNull DaveSessionManagerCallbacks callbacks) {
-        this(selfUserId, channelId, callbacks, DaveSessionImpl.create(null));
+        this(selfUserId, channelId, callbacks, DaveSessionImpl.create(null), DaveBufferPool.getDefault());
     }
 
     private DaveSessionManager(
             long selfUserId,
             long channelId,
             @NonNull DaveSessionManagerCallbacks callbacks,
-            @NonNull DaveSessionImpl session) {
+            @NonNull DaveSessionImpl session,
+            @NonNull DaveBufferPool bufferPool) {
         this.selfUserId = selfUserId;
         this.channelId = channelId;
         this.callbacks = callbacks;
         this.session = session;
-        this.encryptor = DaveEncryptor.create(session, selfUserId);
+        this.bufferPool = bufferPool;
+        this.encryptor = DaveEncryptor.create(session, selfUserId, bufferPool);
     }
 
     @NonNull
@@ -59,15 +113,121 @@ public class DaveSessionManager implements AutoCloseable {
             long channelId,
             @NonNull DaveSessionManagerCallbacks callbacks,
             @Nullable String authSessionId) {
-        return new DaveSessionManager(selfUserId, channelId, callbacks, DaveSessionImpl.create(authSessionId));
+        return create(selfUserId, channelId, callbacks, authSessionId, DaveBufferPool.getDefault());
+    }
+
+    @NonNull
+    static DaveSessionManager create(
+            long selfUserId,
+            long channelId,
+            @NonNull DaveSessionManagerCallbacks callbacks,
+            @Nullable String authSessionId,
+            @NonNull DaveBufferPool bufferPool) {
+        return new DaveSessionManager(
+                selfUserId, channelId, callbacks, DaveSessionImpl.create(authSessionId), bufferPool);
+    }
+
+    // Shares the control-plane executor and metrics of the runtime, which keeps track of this session until closed
+    void attach(@NonNull DaveRuntime runtime) {
+        this.runtime = runtime;
+        setTransitionExecutor(runtime.getControlPlaneExecutor());
+        setLazyKeying(runtime.isLazyKeying());
+
+        DaveMetricsCollector runtimeMetrics = runtime.getMetrics();
+        if (runtimeMetrics != null) {
+            setMetrics(DaveMetricsCollector.create(runtimeMetrics));
+        }
     }
 
     @Override
     public void close() {
-        encryptor.close();
-        decryptors.values().forEach(DaveDecryptor::close);
-        decryptors.clear();
-        session.close();
+        DaveRuntime runtime = this.runtime;
+        if (runtime != null) {
+            runtime.unregister(this);
+        }
+
+        sessionLock.lock();
+        try {
+            closed = true;
+            encryptor.close();
+            synchronized (decryptorLock) {
+                members.clear();
+                decryptors.clear().forEach(DaveDecryptor::close);
+            }
+            subscriptions.clear();
+            pendingKeys.clear();
+            transitionEvents.clear();
+            session.close();
+        } finally {
+            sessionLock.unlock();
+        }
+    }
+
+    // Defers creating and keying the decryptor of a user until their first frame is received, so members that never
+    // speak cost neither native memory nor time during transitions. Only applies to users added afterwards.
+    // The first frame requests the decryptor from the control plane, frames fail with KEY_PENDING until it is ready.
+    public void setLazyKeying(boolean lazyKeying) {
+        this.lazyKeying = lazyKeying;
+    }
+
+    public boolean isLazyKeying() {
+        return lazyKeying;
+    }
+
+    // Collects data-plane metrics of this session, DaveMetricsCollector.create() aggregates into the global collector
+    public void setMetrics(@NonNull DaveMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @NonNull
+    public DaveMetrics getMetrics() {
+        return metrics;
+    }
+
+    // Derives and installs the key ratchets of all decryptors on this executor during protocol transitions.
+    // The calling thread still waits for all of them before signaling readiness, so the session is never
+    // mutated while ratchets are derived, and each decryptor is only ever touched by a single task.
+    // Users re-keyed outside of transitions are also keyed on this executor, or the common pool if unset.
+    public void setTransitionExecutor(@Nullable Executor transitionExecutor) {
+        this.transitionExecutor = transitionExecutor;
+    }
+
+    public long getSelfUserId() {
+        return selfUserId;
+    }
+
+    public long getChannelId() {
+        return channelId;
+    }
+
+    // Consistent view of protocol version, epoch, passthrough mode and pending transitions
+    @NonNull
+    public DaveSessionState getState() {
+        return state;
+    }
+
+    @NonNull
+    private DaveSessionState updateState(@NonNull UnaryOperator<DaveSessionState> update) {
+        while (true) {
+            DaveSessionState current = state;
+            DaveSessionState updated = update.apply(current);
+            if (current == updated || STATE.compareAndSet(this, current, updated)) {
+                return updated;
+            }
+        }
+    }
+
+    // Returns the protocol version of the removed transition, or null if it was not pending
+    @Nullable
+    private Integer removePendingTransition(int transitionId) {
+        while (true) {
+            DaveSessionState current = state;
+            Integer protocolVersion = current.getPendingProtocolVersion(transitionId);
+            if (protocolVersion == null
+                    || STATE.compareAndSet(this, current, current.withoutPendingTransition(transitionId))) {
+                return protocolVersion;
+            }
+        }
     }
 
     public int getMaxProtocolVersion() {
@@ -91,43 +251,393 @@ public class DaveSessionManager implements AutoCloseable {
         return (int) decryptor.getMaxPlaintextByteSize(type, frameSize);
     }
 
+    // Pool of the runtime this session belongs to, or the default pool
+    @NonNull
+    public DaveBufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    // Native buffer large enough for the encrypted frame, which is returned to the pool by closing the lease
+    @NonNull
+    public Lease leaseEncryptBuffer(@NonNull DaveMediaType type, int frameSize) {
+        return bufferPool.lease(getMaxEncryptedFrameSize(type, frameSize));
+    }
+
+    // Native buffer large enough for the decrypted frame, which is returned to the pool by closing the lease
+    @NonNull
+    public Lease leaseDecryptBuffer(@NonNull DaveMediaType type, long userId, int frameSize) {
+        return bufferPool.lease(getMaxDecryptedFrameSize(type, userId, frameSize));
+    }
+
+    // Wrapping the buffers allocates a small segment per buffer and frame,
+    // only the segment overloads of DaveEncryptor and DaveDecryptor are allocation-free
     @NonNull
     public DaveEncryptResultType encrypt(
             @NonNull DaveMediaType type, int ssrc, @NonNull ByteBuffer audio, @NonNull ByteBuffer encrypted) {
-        DaveEncryptor.DaveEncryptorResult result = encryptor.encrypt(type, ssrc, audio, encrypted);
-        return result.type();
+        DaveMetrics metrics = this.metrics;
+        long start = metrics.isTimed() ? System.nanoTime() : 0;
+        long bytesWritten =
+                encryptor.encrypt(type, ssrc, MemorySegment.ofBuffer(audio), MemorySegment.ofBuffer(encrypted));
+        long nanos = metrics.isTimed() ? System.nanoTime() - start : 0;
+
+        if (bytesWritten < 0) {
+            metrics.recordEncryptFailure(type, DaveFailureCause.ENCRYPTION_FAILED);
+            return DaveEncryptResultType.FAILURE;
+        }
+
+        metrics.recordEncrypt(type, audio.remaining(), bytesWritten, state.passthrough(), nanos);
+        encrypted.limit(encrypted.position() + (int) bytesWritten);
+        return DaveEncryptResultType.SUCCESS;
     }
 
     @NonNull
     public DaveDecryptResultType decrypt(
             @NonNull DaveMediaType type, long userId, @NonNull ByteBuffer encrypted, @NonNull ByteBuffer decrypted) {
-        DaveDecryptor decryptor = decryptors.get(userId);
+        DaveMetrics metrics = this.metrics;
+        if (!isSubscribed(userId)) {
+            metrics.recordDecryptFailure(type, userId, DaveFailureCause.UNSUBSCRIBED);
+            return DaveDecryptResultType.FAILURE;
+        }
 
-        if (decryptor != null) {
-            return decryptor.decrypt(type, encrypted, decrypted).type();
-        } else {
+        DaveDecryptor decryptor = getDecryptor(userId);
+        if (decryptor == null) {
+            metrics.recordDecryptFailure(type, userId, missingDecryptorCause(userId));
+            return DaveDecryptResultType.FAILURE;
+        }
+
+        DaveFrameType frameType = DaveFrameClassifier.classify(encrypted);
+        long start = metrics.isTimed() ? System.nanoTime() : 0;
+        long bytesWritten =
+                decryptor.decrypt(type, MemorySegment.ofBuffer(encrypted), MemorySegment.ofBuffer(decrypted));
+        long nanos = metrics.isTimed() ? System.nanoTime() - start : 0;
+
+        if (bytesWritten < 0) {
+            metrics.recordDecryptFailure(type, userId, failureCause(frameType));
             return DaveDecryptResultType.FAILURE;
         }
+
+        boolean passthrough = frameType != DaveFrameType.ENCRYPTED;
+        metrics.recordDecrypt(type, userId, encrypted.remaining(), bytesWritten, passthrough, nanos);
+        decrypted.limit(decrypted.position() + (int) bytesWritten);
+        return DaveDecryptResultType.SUCCESS;
+    }
+
+    // Decrypts the frame into its own buffer, the limit is set to the end of the plaintext
+    @NonNull
+    public DaveDecryptResultType decryptInPlace(@NonNull DaveMediaType type, long userId, @NonNull ByteBuffer frame) {
+        DaveMetrics metrics = this.metrics;
+        if (!isSubscribed(userId)) {
+            metrics.recordDecryptFailure(type, userId, DaveFailureCause.UNSUBSCRIBED);
+            return DaveDecryptResultType.FAILURE;
+        }
+
+        DaveDecryptor decryptor = getDecryptor(userId);
+        if (decryptor == null) {
+            metrics.recordDecryptFailure(type, userId, missingDecryptorCause(userId));
+            return DaveDecryptResultType.FAILURE;
+        }
+
+        // The trailer is overwritten by the plaintext
+        int encryptedSize = frame.remaining();
+        DaveFrameType frameType = DaveFrameClassifier.classify(frame);
+
+        long start = metrics.isTimed() ? System.nanoTime() : 0;
+        long bytesWritten = decryptor.decryptInPlace(type, MemorySegment.ofBuffer(frame));
+        long nanos = metrics.isTimed() ? System.nanoTime() - start : 0;
+
+        if (bytesWritten < 0) {
+            metrics.recordDecryptFailure(type, userId, failureCause(frameType));
+            return DaveDecryptResultType.FAILURE;
+        }
+
+        boolean passthrough = frameType != DaveFrameType.ENCRYPTED;
+        metrics.recordDecrypt(type, userId, encryptedSize, bytesWritten, passthrough, nanos);
+        frame.limit(frame.position() + (int) bytesWritten);
+        return DaveDecryptResultType.SUCCESS;
+    }
+
+    // Encrypts a burst of frames for the same ssrc, returns how many frames were encrypted successfully
+    public int encrypt(
+            @NonNull DaveMediaType type,
+            int ssrc,
+            @NonNull ByteBuffer @NonNull [] frames,
+            @NonNull ByteBuffer @NonNull [] encrypted,
+            @NonNull DaveEncryptResultType @NonNull [] results) {
+        DaveMetrics metrics = this.metrics;
+        long start = metrics.isTimed() ? System.nanoTime() : 0;
+        int successful = encryptor.encrypt(type, ssrc, frames, encrypted, results);
+        // The native calls of a burst are not timed individually, each frame is attributed an equal share
+        long nanos = metrics.isTimed() && frames.length > 0 ? (System.nanoTime() - start) / frames.length : 0;
+
+        boolean passthrough = state.passthrough();
+        for (int i = 0; i < frames.length; i++) {
+            if (results[i] == DaveEncryptResultType.SUCCESS) {
+                metrics.recordEncrypt(type, frames[i].remaining(), encrypted[i].remaining(), passthrough, nanos);
+            } else {
+                metrics.recordEncryptFailure(type, DaveFailureCause.ENCRYPTION_FAILED);
+            }
+        }
+
+        return successful;
+    }
+
+    // Decrypts a burst of frames from the same user, returns how many frames were decrypted successfully
+    public int decrypt(
+            @NonNull DaveMediaType type,
+            long userId,
+            @NonNull ByteBuffer @NonNull [] encrypted,
+            @NonNull ByteBuffer @NonNull [] decrypted,
+            @NonNull DaveDecryptResultType @NonNull [] results) {
+        DaveMetrics metrics = this.metrics;
+        boolean subscribed = isSubscribed(userId);
+        DaveDecryptor decryptor = subscribed ? getDecryptor(userId) : null;
+
+        if (decryptor == null || !subscribed) {
+            DaveFailureCause cause = subscribed ? missingDecryptorCause(userId) : DaveFailureCause.UNSUBSCRIBED;
+            Arrays.fill(results, 0, encrypted.length, DaveDecryptResultType.FAILURE);
+            for (int i = 0; i < encrypted.length; i++) {
+                metrics.recordDecryptFailure(type, userId, cause);
+            }
+            return 0;
+        }
+
+        long start = metrics.isTimed() ? System.nanoTime() : 0;
+        int successful = decryptor.decrypt(type, encrypted, decrypted, results);
+        long nanos = metrics.isTimed() && encrypted.length > 0 ? (System.nanoTime() - start) / encrypted.length : 0;
+
+        for (int i = 0; i < encrypted.length; i++) {
+            ByteBuffer frame = encrypted[i];
+            DaveFrameType frameType = DaveFrameClassifier.classify(frame);
+            if (results[i] == DaveDecryptResultType.SUCCESS) {
+                boolean passthrough = frameType != DaveFrameType.ENCRYPTED;
+                metrics.recordDecrypt(type, userId, frame.remaining(), decrypted[i].remaining(), passthrough, nanos);
+            } else {
+                metrics.recordDecryptFailure(type, userId, failureCause(frameType));
+            }
+        }
+
+        return successful;
+    }
+
+    // Frames without a valid trailer never reach libdave, so their failures have their own causes
+    @NonNull
+    private static DaveFailureCause failureCause(@NonNull DaveFrameType frameType) {
+        return switch (frameType) {
+            case ENCRYPTED -> DaveFailureCause.DECRYPTION_FAILED;
+            case PASSTHROUGH -> DaveFailureCause.UNENCRYPTED_FRAME;
+            case MALFORMED -> DaveFailureCause.MALFORMED_FRAME;
+        };
     }
 
-    @SuppressWarnings("resource")
     public void addUser(long userId) {
         log.debug("Adding user {}", userId);
-        DaveDecryptor decryptor = decryptors.computeIfAbsent(userId, id -> DaveDecryptor.create(id, session));
-        decryptor.prepareTransition(currentProtocolVersion);
+        members.put(userId, Boolean.TRUE);
+        if (!lazyKeying) {
+            runWithSessionLock(() -> keyUser(userId));
+        }
+    }
+
+    // Creates and keys the decryptor of a member on the control plane ahead of their first frame,
+    // e.g. when they start speaking
+    public void warmupUser(long userId) {
+        requestKeying(userId);
+    }
+
+    // Decryptor of a member, with lazy keying the first frame only requests it and fails with KEY_PENDING
+    @Nullable
+    private DaveDecryptor getDecryptor(long userId) {
+        DaveDecryptor decryptor = decryptors.get(userId);
+        if (decryptor != null || !members.containsKey(userId)) {
+            return decryptor;
+        }
+
+        requestKeying(userId, false);
+        return null;
+    }
+
+    @NonNull
+    private DaveFailureCause missingDecryptorCause(long userId) {
+        return members.containsKey(userId) ? DaveFailureCause.KEY_PENDING : DaveFailureCause.UNKNOWN_USER;
+    }
+
+    // Frames of unsubscribed users are dropped without decrypting them, and their decryptors are not re-keyed
+    // on transitions. They are still members of the MLS group.
+    public boolean isSubscribed(long userId) {
+        Boolean subscribed = subscriptions.get(userId);
+        return subscribed != null ? subscribed : subscribeByDefault;
+    }
+
+    // Re-keys the decryptor of the user if it was skipped while unsubscribed. The subscription applies right away,
+    // the key is derived on the control plane, so frames sent before it is installed may still fail.
+    public void subscribe(long userId) {
+        setSubscribed(userId, true);
+    }
+
+    public void unsubscribe(long userId) {
+        setSubscribed(userId, false);
+    }
+
+    private void setSubscribed(long userId, boolean subscribed) {
+        log.debug("Setting subscription of user {} to {}", userId, subscribed);
+        synchronized (subscriptionLock) {
+            boolean wasSubscribed = isSubscribed(userId);
+            subscriptions.put(userId, subscribed);
+            if (subscribed && !wasSubscribed) {
+                requestKeying(userId);
+            }
+        }
+    }
+
+    // Applies to users without an explicit subscription, set to false to only decrypt subscribed users
+    public void setSubscribeByDefault(boolean subscribeByDefault) {
+        synchronized (subscriptionLock) {
+            boolean previous = this.subscribeByDefault;
+            this.subscribeByDefault = subscribeByDefault;
+            if (subscribeByDefault && !previous) {
+                for (long userId : decryptors.keys()) {
+                    if (!subscriptions.containsKey(userId)) {
+                        requestKeying(userId);
+                    }
+                }
+            }
+        }
+    }
+
+    // Called from any thread, the key is derived later with the session lock held
+    private void requestKeying(long userId) {
+        requestKeying(userId, true);
+    }
+
+    // Every frame of a pending user requests keying, only the first one writes to the copy-on-write map
+    private void requestKeying(long userId, boolean allowInline) {
+        if (!pendingKeys.containsKey(userId)) {
+            pendingKeys.put(userId, Boolean.TRUE);
+        }
+        scheduleKeying(allowInline);
+    }
+
+    // Requests from the data plane must not derive keys on the receiving thread. A saturated caller-runs executor
+    // would run the task right away, in that case the task is dropped and the next frame requests it again.
+    private void scheduleKeying(boolean allowInline) {
+        if (keyingScheduled.get() || !keyingScheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        Executor executor = transitionExecutor;
+        if (executor == null) {
+            executor = ForkJoinPool.commonPool();
+        }
+
+        // A task that runs on this thread before execute returns was run inline by the executor
+        Thread requester = Thread.currentThread();
+        AtomicBoolean submitting = new AtomicBoolean(!allowInline);
+        try {
+            executor.execute(() -> {
+                if (submitting.get() && Thread.currentThread() == requester) {
+                    keyingScheduled.set(false);
+                } else {
+                    keyPendingUsers();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Pending users are keyed by the next request or when a gateway event releases the session lock
+            keyingScheduled.set(false);
+        } finally {
+            submitting.set(false);
+        }
+    }
+
+    // Never waits for the lock, a control-plane task blocking on it could starve the transition holding it.
+    // Cleared before draining, so requests arriving meanwhile schedule another task.
+    private void keyPendingUsers() {
+        keyingScheduled.set(false);
+        if (sessionLock.tryLock()) {
+            unlockSession();
+        }
+    }
+
+    // Keys users requested while the lock was held before releasing it, and hands requests that raced with the
+    // release to a new task, so no request is left pending
+    private void unlockSession() {
+        try {
+            if (sessionLock.getHoldCount() == 1 && !closed) {
+                for (long userId : pendingKeys.keys()) {
+                    pendingKeys.remove(userId);
+                    try {
+                        keyUser(userId);
+                    } catch (RuntimeException e) {
+                        log.error("Failed to key decryptor of user {}", userId, e);
+                    }
+                }
+            }
+        } finally {
+            sessionLock.unlock();
+        }
+
+        if (!pendingKeys.isEmpty() && !closed && !sessionLock.isHeldByCurrentThread()) {
+            scheduleKeying(true);
+        }
+    }
+
+    // Called with the session lock held, which also keeps transitions from changing the protocol version meanwhile
+    private void keyUser(long userId) {
+        DaveDecryptor decryptor = decryptors.get(userId);
+        if (decryptor != null) {
+            if (isSubscribed(userId)) {
+                decryptor.prepareTransition(state.protocolVersion());
+            }
+            return;
+        }
+
+        if (members.containsKey(userId)) {
+            createDecryptor(userId);
+        }
+    }
+
+    // Called with the session lock held. The decryptor is only published once keyed, so no frame reaches it before.
+    @SuppressWarnings("resource")
+    private void createDecryptor(long userId) {
+        DaveDecryptor decryptor = DaveDecryptor.create(userId, session, bufferPool);
+        if (isSubscribed(userId)) {
+            decryptor.prepareTransition(state.protocolVersion());
+        }
+
+        // The user might have been removed meanwhile
+        synchronized (decryptorLock) {
+            if (members.containsKey(userId) && !decryptors.containsKey(userId)) {
+                decryptors.put(userId, decryptor);
+                return;
+            }
+        }
+        decryptor.close();
+    }
+
+    private void runWithSessionLock(@NonNull Runnable action) {
+        sessionLock.lock();
+        try {
+            action.run();
+        } finally {
+            unlockSession();
+        }
     }
 
     public void removeUser(long userId) {
         log.debug("Removing user {}", userId);
-        DaveDecryptor decryptor = decryptors.remove(userId);
+        DaveDecryptor decryptor;
+        synchronized (decryptorLock) {
+            members.remove(userId);
+            decryptor = decryptors.remove(userId);
+        }
+
         if (decryptor != null) {
             decryptor.close();
         }
+        metrics.removeUser(userId);
     }
 
     public void onSelectProtocolAck(int protocolVersion) {
         log.debug("Handle select protocol version {}", protocolVersion);
-        handleDaveProtocolInit(protocolVersion);
+        runWithSessionLock(() -> handleDaveProtocolInit(protocolVersion));
     }
 
     public void onDaveProtocolPrepareTransition(int transitionId, int protocolVersion) {
@@ -136,42 +646,81 @@ public class DaveSessionManager implements AutoCloseable {
                 transitionId,
                 protocolVersion);
 
-        prepareProtocolTransition(transitionId, protocolVersion);
+        runWithSessionLock(() -> prepareProtocolTransition(transitionId, protocolVersion));
     }
 
     public void onDaveProtocolExecuteTransition(int transitionId) {
         log.debug("Handle dave protocol execute transition transitionId={}", transitionId);
-        executeProtocolTransition(transitionId);
+        runWithSessionLock(() -> executeProtocolTransition(transitionId));
     }
 
     public void onDaveProtocolPrepareEpoch(long epoch, int protocolVersion) {
         log.debug("Handle dave protocol prepare epoch epoch={} protocolVersion={}", epoch, protocolVersion);
-        handlePrepareEpoch(epoch, (short) protocolVersion);
+        runWithSessionLock(() -> {
+            // Transitions prepared in an earlier epoch are never executed
+            transitionEvents.clear();
+            updateState(current -> current.withEpoch(epoch));
+            handlePrepareEpoch(epoch, (short) protocolVersion);
+        });
     }
 
     public void onDaveProtocolMLSExternalSenderPackage(@NonNull ByteBuffer externalSenderPackage) {
         log.debug("Handling external sender package");
-        session.setExternalSender(externalSenderPackage);
+        runWithSessionLock(() -> handleExternalSenderPackage(externalSenderPackage));
+    }
+
+    private void handleExternalSenderPackage(@NonNull ByteBuffer externalSenderPackage) {
+        DaveMlsOperationEvent event = beginMlsOperation("setExternalSender", -1);
+        try {
+            session.setExternalSender(externalSenderPackage);
+            event.success = true;
+        } finally {
+            commitMlsOperation(event);
+        }
     }
 
     public void onMLSProposals(@NonNull ByteBuffer proposals) {
         log.debug("Handling MLS proposals");
-        session.processProposals(proposals, getRecognizedUserIds(), callbacks::sendMLSCommitWelcome);
+        runWithSessionLock(() -> handleProposals(proposals));
+    }
+
+    private void handleProposals(@NonNull ByteBuffer proposals) {
+        DaveMlsOperationEvent event = beginMlsOperation("processProposals", -1);
+        try {
+            session.processProposals(proposals, getRecognizedUserIds(), callbacks::sendMLSCommitWelcome);
+            event.success = true;
+        } finally {
+            commitMlsOperation(event);
+        }
     }
 
     public void onMLSPrepareCommitTransition(int transitionId, @NonNull ByteBuffer commit) {
         log.debug("Handling MLS prepare commit transition transitionId={}", transitionId);
-        DaveSessionImpl.CommitResult result = session.processCommit(commit);
+        runWithSessionLock(() -> handleCommit(transitionId, commit));
+    }
+
+    private void handleCommit(int transitionId, @NonNull ByteBuffer commit) {
+        DaveMlsOperationEvent event = beginMlsOperation("processCommit", transitionId);
+        DaveSessionImpl.CommitResult result;
+        try {
+            result = session.processCommit(commit);
+            event.success = result instanceof DaveSessionImpl.CommitResult.Success success && success.joined();
+        } finally {
+            commitMlsOperation(event);
+        }
+
         switch (result) {
             case DaveSessionImpl.CommitResult.Ignored ignored -> {
-                preparedTransitions.remove(transitionId);
+                removePendingTransition(transitionId);
+                encryptor.cancelTransition(transitionId);
+                transitionEvents.remove(transitionId);
             }
             case DaveSessionImpl.CommitResult.Success success -> {
                 if (success.joined()) {
+                    updateState(current -> current.withEpoch(current.epoch() + 1));
                     prepareProtocolTransition(transitionId, session.getProtocolVersion());
                 } else {
-                    sendInvalidCommitWelcome(transitionId);
-                    handleDaveProtocolInit(transitionId);
+                    resetSession(transitionId);
                 }
             }
         }
@@ -179,22 +728,44 @@ public class DaveSessionManager implements AutoCloseable {
 
     public void onMLSWelcome(int transitionId, @NonNull ByteBuffer welcome) {
         log.debug("Handling MLS welcome transition transitionId={}", transitionId);
-        boolean joinedGroup = session.processWelcome(welcome, getRecognizedUserIds());
+        runWithSessionLock(() -> handleWelcome(transitionId, welcome));
+    }
+
+    private void handleWelcome(int transitionId, @NonNull ByteBuffer welcome) {
+        DaveMlsOperationEvent event = beginMlsOperation("processWelcome", transitionId);
+        boolean joinedGroup;
+        try {
+            joinedGroup = session.processWelcome(welcome, getRecognizedUserIds());
+            event.success = joinedGroup;
+        } finally {
+            commitMlsOperation(event);
+        }
 
         if (joinedGroup) {
+            // The welcome is sent with the commit that added this member, which advances the epoch like any commit
+            updateState(current -> current.withEpoch(current.epoch() + 1));
             prepareProtocolTransition(transitionId, session.getProtocolVersion());
         } else {
-            sendInvalidCommitWelcome(transitionId);
-            handleDaveProtocolInit(transitionId);
+            resetSession(transitionId);
         }
     }
 
+    // The group is joined again from scratch, transitions prepared so far are never executed
+    private void resetSession(int transitionId) {
+        transitionEvents.clear();
+        sendInvalidCommitWelcome(transitionId);
+        handleDaveProtocolInit(transitionId);
+    }
+
     @NonNull
     private List<@NonNull String> getRecognizedUserIds() {
-        return LongStream.concat(
-                        LongStream.of(selfUserId), decryptors.keySet().stream().mapToLong(id -> id))
-                .mapToObj(Long::toUnsignedString)
-                .toList();
+        long[] userIds = members.keys();
+        List<String> recognized = new ArrayList<>(userIds.length + 1);
+        recognized.add(Long.toUnsignedString(selfUserId));
+        for (long userId : userIds) {
+            recognized.add(Long.toUnsignedString(userId));
+        }
+        return recognized;
     }
 
     private void handleDaveProtocolInit(int protocolVersion) {
@@ -212,31 +783,117 @@ public class DaveSessionManager implements AutoCloseable {
             return;
         }
 
-        session.initialize((short) protocolVersion, channelId, Long.toUnsignedString(selfUserId));
-        session.sendMarshalledKeyPackage(callbacks::sendMLSKeyPackage);
+        updateState(current -> current.withEpoch(epoch));
+        DaveMlsOperationEvent event = beginMlsOperation("initialize", -1);
+        try {
+            session.initialize((short) protocolVersion, channelId, Long.toUnsignedString(selfUserId));
+            event.success = true;
+        } finally {
+            commitMlsOperation(event);
+        }
+
+        sendMarshalledKeyPackage();
+    }
+
+    private void sendMarshalledKeyPackage() {
+        DaveMlsOperationEvent event = beginMlsOperation("sendMarshalledKeyPackage", -1);
+        try {
+            session.sendMarshalledKeyPackage(callbacks::sendMLSKeyPackage);
+            event.success = true;
+        } finally {
+            commitMlsOperation(event);
+        }
+    }
+
+    @NonNull
+    private DaveMlsOperationEvent beginMlsOperation(@NonNull String operation, int transitionId) {
+        DaveMlsOperationEvent event = new DaveMlsOperationEvent();
+        event.operation = operation;
+        event.transitionId = transitionId;
+        event.begin();
+        return event;
+    }
+
+    private void commitMlsOperation(@NonNull DaveMlsOperationEvent event) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.channelId = channelId;
+            event.epoch = state.epoch();
+            event.protocolVersion = session.getProtocolVersion();
+            event.memberCount = getMemberCount();
+            event.commit();
+        }
+    }
+
+    private int getMemberCount() {
+        return members.size() + (members.containsKey(selfUserId) ? 0 : 1);
     }
 
     private void prepareProtocolTransition(int transitionId, int protocolVersion) {
         log.debug("Preparing to transition to protocol version={} (Transition ID {})", protocolVersion, transitionId);
-        decryptors.forEach((userId, decryptor) -> {
-            if (userId == selfUserId) {
-                return;
-            }
+        DaveTransitionEvent event = new DaveTransitionEvent();
+        event.channelId = channelId;
+        event.transitionId = transitionId;
+        event.epoch = state.epoch();
+        event.protocolVersion = protocolVersion;
+        event.memberCount = getMemberCount();
+        event.begin();
+        long prepareStart = System.nanoTime();
+
+        // Users subscribing from now on are keyed for the new version, even before this transition is prepared
+        updateState(current -> current.withProtocolVersion(protocolVersion));
+
+        Executor executor = transitionExecutor;
+        if (executor != null && decryptors.size() >= PARALLEL_TRANSITION_THRESHOLD) {
+            prepareDecryptorsParallel(executor, protocolVersion);
+        } else {
+            decryptors.forEach((userId, decryptor) -> {
+                if (userId == selfUserId || !isSubscribed(userId)) {
+                    return;
+                }
 
-            decryptor.prepareTransition(protocolVersion);
-        });
+                decryptor.prepareTransition(protocolVersion);
+            });
+        }
 
         if (transitionId == DaveConstants.INIT_TRANSITION_ID) {
             encryptor.processTransition(protocolVersion);
+            updateState(current ->
+                    current.withProtocolVersion(protocolVersion).withPassthrough(encryptor.isPassthrough()));
+            commitTransition(event);
         } else {
-            preparedTransitions.put(transitionId, protocolVersion);
-            currentProtocolVersion = protocolVersion;
+            encryptor.prepareTransition(transitionId, protocolVersion);
+            updateState(current -> current.withPendingTransition(transitionId, protocolVersion));
             callbacks.sendDaveProtocolReadyForTransition(transitionId);
+
+            // Committed once the gateway tells us to execute the transition
+            event.prepareDuration = System.nanoTime() - prepareStart;
+            transitionEvents.put(transitionId, event);
+        }
+    }
+
+    private void prepareDecryptorsParallel(@NonNull Executor executor, int protocolVersion) {
+        List<CompletableFuture<Void>> tasks = new ArrayList<>(decryptors.size());
+        decryptors.forEach((userId, decryptor) -> {
+            if (userId == selfUserId || !isSubscribed(userId)) {
+                return;
+            }
+
+            tasks.add(CompletableFuture.runAsync(() -> decryptor.prepareTransition(protocolVersion), executor));
+        });
+
+        try {
+            CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
         }
     }
 
     private void executeProtocolTransition(int transitionId) {
-        Integer protocolVersion = preparedTransitions.remove(transitionId);
+        Integer protocolVersion = removePendingTransition(transitionId);
         if (protocolVersion == null) {
             log.warn("Unexpected Transition ID {}", transitionId);
             return;
@@ -248,11 +905,26 @@ public class DaveSessionManager implements AutoCloseable {
             session.reset();
         }
 
-        encryptor.processTransition(protocolVersion);
+        if (!encryptor.executeTransition(transitionId)) {
+            encryptor.processTransition(protocolVersion);
+        }
+        updateState(current -> current.withPassthrough(encryptor.isPassthrough()));
+
+        DaveTransitionEvent event = transitionEvents.remove(transitionId);
+        if (event != null) {
+            commitTransition(event);
+        }
+    }
+
+    private void commitTransition(@NonNull DaveTransitionEvent event) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.commit();
+        }
     }
 
     private void sendInvalidCommitWelcome(int transitionId) {
         callbacks.sendMLSInvalidCommitWelcome(transitionId);
-        session.sendMarshalledKeyPackage(callbacks::sendMLSKeyPackage);
+        sendMarshalledKeyPackage();
     }
 }
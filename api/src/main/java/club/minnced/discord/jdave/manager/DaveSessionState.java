@@ -0,0 +1,62 @@
+package club.minnced.discord.jdave.manager;
+
+import club.minnced.discord.jdave.DaveConstants;
+import java.util.HashMap;
+import java.util.Map;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+// Immutable snapshot of the protocol state of a session. The gateway thread replaces it as a whole on every change,
+// so media threads always see a consistent combination with a single volatile read.
+public record DaveSessionState(
+        int protocolVersion,
+        long epoch,
+        boolean passthrough,
+        @NonNull Map<@NonNull Integer, @NonNull Integer> pendingTransitions) {
+    static final DaveSessionState INITIAL =
+            new DaveSessionState(DaveConstants.DISABLED_PROTOCOL_VERSION, 0, true, Map.of());
+
+    public DaveSessionState {
+        pendingTransitions = Map.copyOf(pendingTransitions);
+    }
+
+    // Protocol version the transition was prepared for, null if it is not pending
+    @Nullable
+    public Integer getPendingProtocolVersion(int transitionId) {
+        return pendingTransitions.get(transitionId);
+    }
+
+    @NonNull
+    DaveSessionState withProtocolVersion(int protocolVersion) {
+        return new DaveSessionState(protocolVersion, epoch, passthrough, pendingTransitions);
+    }
+
+    @NonNull
+    DaveSessionState withEpoch(long epoch) {
+        return new DaveSessionState(protocolVersion, epoch, passthrough, pendingTransitions);
+    }
+
+    @NonNull
+    DaveSessionState withPassthrough(boolean passthrough) {
+        return new DaveSessionState(protocolVersion, epoch, passthrough, pendingTransitions);
+    }
+
+    // Users that join from now on are keyed for the version of the most recently prepared transition
+    @NonNull
+    DaveSessionState withPendingTransition(int transitionId, int protocolVersion) {
+        Map<Integer, Integer> pending = new HashMap<>(pendingTransitions);
+        pending.put(transitionId, protocolVersion);
+        return new DaveSessionState(protocolVersion, epoch, passthrough, pending);
+    }
+
+    @NonNull
+    DaveSessionState withoutPendingTransition(int transitionId) {
+        if (!pendingTransitions.containsKey(transitionId)) {
+            return this;
+        }
+
+        Map<Integer, Integer> pending = new HashMap<>(pendingTransitions);
+        pending.remove(transitionId);
+        return new DaveSessionState(protocolVersion, epoch, passthrough, pending);
+    }
+}
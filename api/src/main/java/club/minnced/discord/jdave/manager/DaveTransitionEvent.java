@@ -0,0 +1,37 @@
+package club.minnced.discord.jdave.manager;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("club.minnced.discord.jdave.Transition")
+@Label("DAVE Protocol Transition")
+@Category({"JDAVE", "Control Plane"})
+@Description("A protocol transition of a DAVE session, from prepare until it is executed")
+@StackTrace(false)
+final class DaveTransitionEvent extends Event {
+    @Label("Channel ID")
+    long channelId;
+
+    @Label("Transition ID")
+    int transitionId;
+
+    @Label("Epoch")
+    @Description("Most recent MLS epoch known to the session")
+    long epoch;
+
+    @Label("Protocol Version")
+    int protocolVersion;
+
+    @Label("Member Count")
+    int memberCount;
+
+    @Label("Prepare Duration")
+    @Description("Time spent preparing the decryptors until readiness was signaled to the gateway")
+    @Timespan(Timespan.NANOSECONDS)
+    long prepareDuration;
+}
@@ -0,0 +1,19 @@
+package club.minnced.discord.jdave.metrics;
+
+public enum DaveFailureCause {
+    // The frame was sent by a user without a decryptor
+    UNKNOWN_USER,
+    // libdave failed to encrypt the frame
+    ENCRYPTION_FAILED,
+    // libdave failed to decrypt the frame
+    DECRYPTION_FAILED,
+    // The frame ends with the magic marker of encrypted frames but has an invalid trailer
+    MALFORMED_FRAME,
+    // An unencrypted frame was received while the decryptor was not in passthrough mode
+    UNENCRYPTED_FRAME,
+    // The frame was sent by a user that is not subscribed for decryption
+    UNSUBSCRIBED,
+    // The decryptor of the user is still being created and keyed on the control plane
+    KEY_PENDING,
+    ;
+}
@@ -0,0 +1,32 @@
+package club.minnced.discord.jdave.metrics;
+
+import club.minnced.discord.jdave.DaveMediaType;
+import org.jspecify.annotations.NonNull;
+
+// Receives data-plane events of a session. All methods are called on the media threads and must not block.
+public interface DaveMetrics {
+    // Discards everything, calls to it are inlined away on the hot path
+    DaveMetrics NOOP = new DaveMetrics() {};
+
+    // Whether native calls should be timed, the nanos passed to the record methods are 0 otherwise
+    default boolean isTimed() {
+        return false;
+    }
+
+    default void recordEncrypt(
+            @NonNull DaveMediaType mediaType, long bytesIn, long bytesOut, boolean passthrough, long nanos) {}
+
+    default void recordEncryptFailure(@NonNull DaveMediaType mediaType, @NonNull DaveFailureCause cause) {}
+
+    default void recordDecrypt(
+            @NonNull DaveMediaType mediaType,
+            long userId,
+            long bytesIn,
+            long bytesOut,
+            boolean passthrough,
+            long nanos) {}
+
+    default void recordDecryptFailure(@NonNull DaveMediaType mediaType, long userId, @NonNull DaveFailureCause cause) {}
+
+    default void removeUser(long userId) {}
+}
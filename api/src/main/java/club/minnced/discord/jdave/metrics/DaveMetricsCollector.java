@@ -0,0 +1,163 @@
+package club.minnced.discord.jdave.metrics;
+
+import club.minnced.discord.jdave.DaveMediaType;
+import club.minnced.discord.jdave.utils.ConcurrentLongMap;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+// Counts data-plane events with LongAdders, which stay cheap under contention from many media threads.
+// Every event is also added to the parent, by default the process-wide collector returned by global().
+public class DaveMetricsCollector implements DaveMetrics {
+    private static final DaveMetricsCollector GLOBAL = new DaveMetricsCollector(null);
+    private static final DaveFailureCause[] CAUSES = DaveFailureCause.values();
+
+    private final @Nullable DaveMetricsCollector parent;
+
+    private final LongAdder framesEncrypted = new LongAdder();
+    private final LongAdder bytesEncryptedIn = new LongAdder();
+    private final LongAdder bytesEncryptedOut = new LongAdder();
+    private final LongAdder framesEncryptedPassthrough = new LongAdder();
+    private final LongAdder framesDecrypted = new LongAdder();
+    private final LongAdder bytesDecryptedIn = new LongAdder();
+    private final LongAdder bytesDecryptedOut = new LongAdder();
+    private final LongAdder framesDecryptedPassthrough = new LongAdder();
+    private final LongAdder[] encryptFailures = newAdders(CAUSES.length);
+    private final LongAdder[] decryptFailures = newAdders(CAUSES.length);
+    private final DaveLatencyHistogram encryptLatency = new DaveLatencyHistogram();
+    private final DaveLatencyHistogram decryptLatency = new DaveLatencyHistogram();
+    // Not tracked by the global collector, which would otherwise accumulate every user ever seen
+    private final ConcurrentLongMap<LongAdder> userDecryptFailures = new ConcurrentLongMap<>();
+
+    private DaveMetricsCollector(@Nullable DaveMetricsCollector parent) {
+        this.parent = parent;
+    }
+
+    @NonNull
+    public static DaveMetricsCollector global() {
+        return GLOBAL;
+    }
+
+    @NonNull
+    public static DaveMetricsCollector create() {
+        return new DaveMetricsCollector(GLOBAL);
+    }
+
+    @NonNull
+    public static DaveMetricsCollector create(@Nullable DaveMetricsCollector parent) {
+        return new DaveMetricsCollector(parent);
+    }
+
+    @Override
+    public boolean isTimed() {
+        return true;
+    }
+
+    @Override
+    public void recordEncrypt(
+            @NonNull DaveMediaType mediaType, long bytesIn, long bytesOut, boolean passthrough, long nanos) {
+        framesEncrypted.increment();
+        bytesEncryptedIn.add(bytesIn);
+        bytesEncryptedOut.add(bytesOut);
+        if (passthrough) {
+            framesEncryptedPassthrough.increment();
+        }
+        encryptLatency.record(nanos);
+
+        if (parent != null) {
+            parent.recordEncrypt(mediaType, bytesIn, bytesOut, passthrough, nanos);
+        }
+    }
+
+    @Override
+    public void recordEncryptFailure(@NonNull DaveMediaType mediaType, @NonNull DaveFailureCause cause) {
+        encryptFailures[cause.ordinal()].increment();
+
+        if (parent != null) {
+            parent.recordEncryptFailure(mediaType, cause);
+        }
+    }
+
+    @Override
+    public void recordDecrypt(
+            @NonNull DaveMediaType mediaType,
+            long userId,
+            long bytesIn,
+            long bytesOut,
+            boolean passthrough,
+            long nanos) {
+        framesDecrypted.increment();
+        bytesDecryptedIn.add(bytesIn);
+        bytesDecryptedOut.add(bytesOut);
+        if (passthrough) {
+            framesDecryptedPassthrough.increment();
+        }
+        decryptLatency.record(nanos);
+
+        if (parent != null) {
+            parent.recordDecrypt(mediaType, userId, bytesIn, bytesOut, passthrough, nanos);
+        }
+    }
+
+    @Override
+    public void recordDecryptFailure(@NonNull DaveMediaType mediaType, long userId, @NonNull DaveFailureCause cause) {
+        decryptFailures[cause.ordinal()].increment();
+
+        // Unknown users would otherwise let anyone sending packets grow the map without bound,
+        // and frames of unsubscribed users are dropped on purpose
+        if (this != GLOBAL && cause != DaveFailureCause.UNKNOWN_USER && cause != DaveFailureCause.UNSUBSCRIBED) {
+            userDecryptFailures.computeIfAbsent(userId, id -> new LongAdder()).increment();
+        }
+
+        if (parent != null) {
+            parent.recordDecryptFailure(mediaType, userId, cause);
+        }
+    }
+
+    @Override
+    public void removeUser(long userId) {
+        userDecryptFailures.remove(userId);
+    }
+
+    @NonNull
+    public DaveMetricsSnapshot snapshot() {
+        Map<Long, Long> userFailures = new HashMap<>();
+        userDecryptFailures.forEach((userId, failures) -> userFailures.put(userId, failures.sum()));
+
+        return new DaveMetricsSnapshot(
+                framesEncrypted.sum(),
+                bytesEncryptedIn.sum(),
+                bytesEncryptedOut.sum(),
+                framesEncryptedPassthrough.sum(),
+                framesDecrypted.sum(),
+                bytesDecryptedIn.sum(),
+                bytesDecryptedOut.sum(),
+                framesDecryptedPassthrough.sum(),
+                sumByCause(encryptFailures),
+                sumByCause(decryptFailures),
+                userFailures,
+                encryptLatency.snapshot(),
+                decryptLatency.snapshot());
+    }
+
+    @NonNull
+    private static Map<DaveFailureCause, Long> sumByCause(@NonNull LongAdder @NonNull [] adders) {
+        Map<DaveFailureCause, Long> sums = new EnumMap<>(DaveFailureCause.class);
+        for (DaveFailureCause cause : CAUSES) {
+            sums.put(cause, adders[cause.ordinal()].sum());
+        }
+        return sums;
+    }
+
+    @NonNull
+    private static LongAdder @NonNull [] newAdders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
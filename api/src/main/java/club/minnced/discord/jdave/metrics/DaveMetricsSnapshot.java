@@ -0,0 +1,25 @@
+package club.minnced.discord.jdave.metrics;
+
+import java.util.Map;
+import org.jspecify.annotations.NonNull;
+
+public record DaveMetricsSnapshot(
+        long framesEncrypted,
+        long bytesEncryptedIn,
+        long bytesEncryptedOut,
+        long framesEncryptedPassthrough,
+        long framesDecrypted,
+        long bytesDecryptedIn,
+        long bytesDecryptedOut,
+        long framesDecryptedPassthrough,
+        @NonNull Map<DaveFailureCause, Long> encryptFailures,
+        @NonNull Map<DaveFailureCause, Long> decryptFailures,
+        @NonNull Map<Long, Long> userDecryptFailures,
+        DaveLatencyHistogram.@NonNull Snapshot encryptLatency,
+        DaveLatencyHistogram.@NonNull Snapshot decryptLatency) {
+    public DaveMetricsSnapshot {
+        encryptFailures = Map.copyOf(encryptFailures);
+        decryptFailures = Map.copyOf(decryptFailures);
+        userDecryptFailures = Map.copyOf(userDecryptFailures);
+    }
+}
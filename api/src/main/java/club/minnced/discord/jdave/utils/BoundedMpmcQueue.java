@@ -0,0 +1,112 @@
+package club.minnced.discord.jdave.utils;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+// Bounded lock-free multi-producer multi-consumer queue (Dmitry Vyukov's design). Every slot carries a sequence
+// number that tells producers and consumers whether it is theirs to fill or drain, so neither side ever blocks.
+public class BoundedMpmcQueue<E> {
+    private static final VarHandle HEAD;
+    private static final VarHandle TAIL;
+    private static final VarHandle ELEMENTS = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            HEAD = lookup.findVarHandle(BoundedMpmcQueue.class, "head", long.class);
+            TAIL = lookup.findVarHandle(BoundedMpmcQueue.class, "tail", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final int mask;
+    private final Object[] elements;
+    private final AtomicLongArray sequences;
+
+    // Next position to poll from and offer to
+    @SuppressWarnings("unused")
+    private volatile long head;
+
+    @SuppressWarnings("unused")
+    private volatile long tail;
+
+    public BoundedMpmcQueue(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30, was " + capacity);
+        }
+
+        int size = Integer.highestOneBit(capacity * 2 - 1);
+        this.mask = size - 1;
+        this.elements = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    public int capacity() {
+        return elements.length;
+    }
+
+    // Returns false if the queue is full
+    public boolean offer(@NonNull E element) {
+        long position = (long) TAIL.getVolatile(this);
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+
+            if (difference == 0) {
+                if (TAIL.compareAndSet(this, position, position + 1)) {
+                    ELEMENTS.setRelease(elements, index, element);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = (long) TAIL.getVolatile(this);
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = (long) TAIL.getVolatile(this);
+            }
+        }
+    }
+
+    // Returns null if the queue is empty
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long position = (long) HEAD.getVolatile(this);
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - (position + 1);
+
+            if (difference == 0) {
+                if (HEAD.compareAndSet(this, position, position + 1)) {
+                    E element = (E) ELEMENTS.getAcquire(elements, index);
+                    ELEMENTS.setRelease(elements, index, null);
+                    sequences.set(index, position + mask + 1);
+                    return element;
+                }
+                position = (long) HEAD.getVolatile(this);
+            } else if (difference < 0) {
+                return null;
+            } else {
+                position = (long) HEAD.getVolatile(this);
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return (long) HEAD.getVolatile(this) >= (long) TAIL.getVolatile(this);
+    }
+
+    // Only a snapshot while other threads offer or poll
+    public int size() {
+        long head = (long) HEAD.getVolatile(this);
+        long size = (long) TAIL.getVolatile(this) - head;
+        return (int) Math.max(0, Math.min(size, elements.length));
+    }
+}
@@ -0,0 +1,201 @@
+package club.minnced.discord.jdave.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongFunction;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+// Open-addressing map with primitive long keys, meant for read-mostly data like the decryptors of a voice channel.
+// Writes copy the table under a lock and publish it through a volatile field, so reads never lock or allocate.
+public class ConcurrentLongMap<V> {
+    private static final int MIN_CAPACITY = 8;
+
+    private final Object lock = new Object();
+    private volatile Table<V> table = Table.empty();
+
+    @Nullable
+    public V get(long key) {
+        return table.get(key);
+    }
+
+    public boolean containsKey(long key) {
+        return table.get(key) != null;
+    }
+
+    @NonNull
+    public V computeIfAbsent(long key, @NonNull LongFunction<? extends @NonNull V> mappingFunction) {
+        V value = table.get(key);
+        if (value != null) {
+            return value;
+        }
+
+        synchronized (lock) {
+            Table<V> current = table;
+            value = current.get(key);
+            if (value == null) {
+                value = mappingFunction.apply(key);
+                table = current.with(key, value);
+            }
+            return value;
+        }
+    }
+
+    @Nullable
+    public V put(long key, @NonNull V value) {
+        synchronized (lock) {
+            Table<V> current = table;
+            V previous = current.get(key);
+            table = current.with(key, value);
+            return previous;
+        }
+    }
+
+    @Nullable
+    public V remove(long key) {
+        synchronized (lock) {
+            Table<V> current = table;
+            V previous = current.get(key);
+            if (previous != null) {
+                table = current.without(key);
+            }
+            return previous;
+        }
+    }
+
+    @NonNull
+    public List<@NonNull V> clear() {
+        synchronized (lock) {
+            List<V> values = table.values();
+            table = Table.empty();
+            return values;
+        }
+    }
+
+    public int size() {
+        return table.size;
+    }
+
+    public boolean isEmpty() {
+        return table.size == 0;
+    }
+
+    public long @NonNull [] keys() {
+        return table.keys();
+    }
+
+    @NonNull
+    public List<@NonNull V> values() {
+        return table.values();
+    }
+
+    public void forEach(@NonNull EntryConsumer<? super V> consumer) {
+        Table<V> snapshot = table;
+        for (int i = 0; i < snapshot.values.length; i++) {
+            V value = snapshot.values[i];
+            if (value != null) {
+                consumer.accept(snapshot.keys[i], value);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        void accept(long key, @NonNull V value);
+    }
+
+    // Tables are never modified once published
+    private static final class Table<V> {
+        private final long[] keys;
+        private final V[] values;
+        private final int mask;
+        private final int size;
+
+        @SuppressWarnings("unchecked")
+        private Table(int capacity, int size) {
+            this.keys = new long[capacity];
+            this.values = (V[]) new Object[capacity];
+            this.mask = capacity - 1;
+            this.size = size;
+        }
+
+        private static <V> Table<V> empty() {
+            return new Table<>(MIN_CAPACITY, 0);
+        }
+
+        private static int capacityFor(int size) {
+            // Keep the load factor at or below 0.5 to keep probe sequences short
+            return Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, size) * 2 - 1) << 1);
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        @Nullable
+        private V get(long key) {
+            int index = hash(key) & mask;
+            while (true) {
+                V value = values[index];
+                if (value == null || keys[index] == key) {
+                    return value;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        private void insert(long key, V value) {
+            int index = hash(key) & mask;
+            while (values[index] != null && keys[index] != key) {
+                index = (index + 1) & mask;
+            }
+            keys[index] = key;
+            values[index] = value;
+        }
+
+        private Table<V> with(long key, V value) {
+            int newSize = get(key) == null ? size + 1 : size;
+            Table<V> copy = new Table<>(capacityFor(newSize), newSize);
+            copyInto(copy, key, false);
+            copy.insert(key, value);
+            return copy;
+        }
+
+        private Table<V> without(long key) {
+            Table<V> copy = new Table<>(capacityFor(size - 1), size - 1);
+            copyInto(copy, key, true);
+            return copy;
+        }
+
+        private void copyInto(Table<V> target, long key, boolean skipKey) {
+            for (int i = 0; i < values.length; i++) {
+                V value = values[i];
+                if (value != null && !(skipKey && keys[i] == key)) {
+                    target.insert(keys[i], value);
+                }
+            }
+        }
+
+        private long[] keys() {
+            long[] result = new long[size];
+            int n = 0;
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    result[n++] = keys[i];
+                }
+            }
+            return result;
+        }
+
+        private List<V> values() {
+            List<V> result = new ArrayList<>(size);
+            for (V value : values) {
+                if (value != null) {
+                    result.add(value);
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package club.minnced.discord.jdave.utils;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+// Pool of off-heap frame buffers in power-of-two size classes. Buffers are carved out of larger slabs allocated
+// from a shared arena and are never freed individually, which avoids the allocation and Cleaner cost of direct
+// ByteBuffers on every frame. Requests above the largest size class get a dedicated segment from an automatic arena,
+// which the garbage collector frees once the lease is released, without the handshake of closing a shared arena.
+public class DaveBufferPool implements AutoCloseable {
+    private static final int MIN_SIZE_SHIFT = 8; // 256 bytes, enough for most audio frames
+    private static final int MAX_SIZE_SHIFT = 20; // 1 MiB, the largest video frames
+    private static final long SLAB_SIZE = 1 << 16;
+    private static final int SIZE_CLASSES = MAX_SIZE_SHIFT - MIN_SIZE_SHIFT + 1;
+
+    private static final DaveBufferPool DEFAULT = new DaveBufferPool();
+
+    private final Arena arena = Arena.ofShared();
+    private final ArrayDeque<Lease>[] freeLists;
+
+    @SuppressWarnings("unchecked")
+    public DaveBufferPool() {
+        this.freeLists = new ArrayDeque[SIZE_CLASSES];
+        for (int i = 0; i < SIZE_CLASSES; i++) {
+            freeLists[i] = new ArrayDeque<>();
+        }
+    }
+
+    // Process-wide pool, used by sessions that are not part of a DaveRuntime
+    @NonNull
+    public static DaveBufferPool getDefault() {
+        return DEFAULT;
+    }
+
+    // Leases a buffer of at least the given size, which has to be released by closing the lease
+    @NonNull
+    public Lease lease(long size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Size must not be negative, was " + size);
+        }
+
+        int sizeClass = sizeClass(size);
+        if (sizeClass >= SIZE_CLASSES) {
+            return new Lease(null, -1, Arena.ofAuto().allocate(size)).acquire(size);
+        }
+
+        Lease lease;
+        ArrayDeque<Lease> freeList = freeLists[sizeClass];
+        synchronized (freeList) {
+            lease = freeList.pollFirst();
+            if (lease == null) {
+                lease = allocateSlab(sizeClass, freeList);
+            }
+        }
+
+        return lease.acquire(size);
+    }
+
+    // Called with the lock of the free list held
+    @NonNull
+    private Lease allocateSlab(int sizeClass, @NonNull ArrayDeque<Lease> freeList) {
+        long bufferSize = 1L << (sizeClass + MIN_SIZE_SHIFT);
+        long slabSize = Math.max(SLAB_SIZE, bufferSize);
+        MemorySegment slab = arena.allocate(slabSize, 64);
+
+        for (long offset = bufferSize; offset < slabSize; offset += bufferSize) {
+            freeList.addLast(new Lease(this, sizeClass, slab.asSlice(offset, bufferSize)));
+        }
+        return new Lease(this, sizeClass, slab.asSlice(0, bufferSize));
+    }
+
+    private void release(@NonNull Lease lease) {
+        ArrayDeque<Lease> freeList = freeLists[lease.sizeClass];
+        synchronized (freeList) {
+            // Recently released buffers are more likely to still be in cache
+            freeList.addFirst(lease);
+        }
+    }
+
+    static int sizeClass(long size) {
+        if (size <= 1L << MIN_SIZE_SHIFT) {
+            return 0;
+        }
+        return Long.SIZE - Long.numberOfLeadingZeros(size - 1) - MIN_SIZE_SHIFT;
+    }
+
+    // Frees all slabs, leases that are still in use must not be accessed afterwards
+    @Override
+    public void close() {
+        if (this == DEFAULT) {
+            throw new UnsupportedOperationException("The default pool cannot be closed");
+        }
+        arena.close();
+    }
+
+    // A leased buffer, closing it returns the buffer to the pool. Lease objects are reused together with
+    // their buffer, so leasing does not allocate once the pool has warmed up.
+    public static class Lease implements AutoCloseable {
+        private static final VarHandle LEASED;
+
+        static {
+            try {
+                LEASED = MethodHandles.lookup().findVarHandle(Lease.class, "leased", boolean.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private final @Nullable DaveBufferPool pool;
+        private final int sizeClass;
+        private final MemorySegment memory;
+        private final ByteBuffer buffer;
+
+        private long size;
+        private @Nullable MemorySegment slice;
+
+        @SuppressWarnings("unused")
+        private volatile boolean leased;
+
+        private Lease(@Nullable DaveBufferPool pool, int sizeClass, @NonNull MemorySegment memory) {
+            this.pool = pool;
+            this.sizeClass = sizeClass;
+            this.memory = memory;
+            this.buffer = memory.asByteBuffer();
+        }
+
+        @NonNull
+        private Lease acquire(long size) {
+            leased = true;
+            this.size = size;
+            buffer.clear().limit((int) Math.min(size, Integer.MAX_VALUE));
+            return this;
+        }
+
+        // Segment of the requested size. The slice is kept for later leases of this buffer, so it is only
+        // allocated again when the requested size changes.
+        @NonNull
+        public MemorySegment segment() {
+            MemorySegment slice = this.slice;
+            if (slice == null || slice.byteSize() != size) {
+                slice = memory.asSlice(0, size);
+                this.slice = slice;
+            }
+            return slice;
+        }
+
+        // Requested size of the lease
+        public long size() {
+            return size;
+        }
+
+        // Size of the underlying buffer, which is at least the requested size
+        public long capacity() {
+            return memory.byteSize();
+        }
+
+        // Direct buffer with position 0 and the requested size as limit, its capacity might be larger
+        @NonNull
+        public ByteBuffer buffer() {
+            return buffer;
+        }
+
+        @Override
+        public void close() {
+            if (!LEASED.compareAndSet(this, true, false)) {
+                throw new IllegalStateException("Buffer lease was already released");
+            }
+
+            if (pool != null) {
+                pool.release(this);
+            }
+        }
+    }
+}
@@ -3,6 +3,11 @@ package club.minnced.discord.jdave.utils;
 import club.minnced.discord.jdave.DaveLoggingSeverity;
 import club.minnced.discord.jdave.ffi.LibDave;
 import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 import org.jspecify.annotations.NonNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,10 +17,53 @@ public class DaveLogger {
     @SuppressWarnings("LoggerInitializedWithForeignClass")
     public static final Logger log = LoggerFactory.getLogger(LibDave.class);
 
+    public static final String ASYNC_PROPERTY = "jdave.log.async";
+    public static final String ASYNC_CAPACITY_PROPERTY = "jdave.log.async.capacity";
+
     private static final Arena arena = Arena.global();
 
+    private static final int MAX_FILE_LENGTH = 256;
+    private static final int MAX_MESSAGE_LENGTH = 4096;
+
+    private static final LongAdder droppedRecords = new LongAdder();
+
     public static void init() {
-        LibDave.setLogSinkCallback(arena, DaveLogger::log);
+        // Critical downcalls must not upcall, which libdave would do whenever it logs from within encrypt/decrypt
+        if (LibDave.isCriticalDowncalls()) {
+            log.warn("Critical downcalls are enabled, native log output of libdave will not be forwarded");
+            return;
+        }
+
+        if (Boolean.getBoolean(ASYNC_PROPERTY)) {
+            AsyncSink sink = new AsyncSink(Integer.getInteger(ASYNC_CAPACITY_PROPERTY, 1024));
+            sink.start();
+            LibDave.setRawLogSinkCallback(arena, sink);
+        } else {
+            LibDave.setLogSinkCallback(arena, new LibDave.LogSinkCallback() {
+                @Override
+                public boolean isEnabled(@NonNull DaveLoggingSeverity severity) {
+                    return DaveLogger.isEnabled(severity);
+                }
+
+                @Override
+                public void onLogSink(
+                        @NonNull DaveLoggingSeverity severity,
+                        @NonNull String file,
+                        int line,
+                        @NonNull Object message) {
+                    log(severity, file, line, message);
+                }
+            });
+        }
+    }
+
+    // Records that were discarded in async mode because the buffer was full
+    public static long getDroppedRecords() {
+        return droppedRecords.sum();
+    }
+
+    private static boolean isEnabled(@NonNull DaveLoggingSeverity severity) {
+        return log.isEnabledForLevel(mapLogLevel(severity));
     }
 
     private static void log(
@@ -42,4 +90,120 @@ public class DaveLogger {
             case NONE -> Level.INFO;
         };
     }
+
+    // Copies the raw native strings into preallocated records on the logging thread, and leaves decoding and
+    // calling into SLF4J to a background thread. Records are recycled through a free list, so nothing is
+    // allocated while libdave is waiting for the callback to return.
+    private static class AsyncSink implements LibDave.RawLogSinkCallback, Runnable {
+        private final BoundedMpmcQueue<Record> pending;
+        private final BoundedMpmcQueue<Record> free;
+        private volatile boolean parked;
+        private Thread thread;
+
+        AsyncSink(int capacity) {
+            this.pending = new BoundedMpmcQueue<>(capacity);
+            this.free = new BoundedMpmcQueue<>(capacity);
+            for (int i = 0; i < capacity; i++) {
+                free.offer(new Record());
+            }
+        }
+
+        void start() {
+            thread = new Thread(this, "jdave-log");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private void wakeUp() {
+            if (parked) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        @Override
+        public boolean isEnabled(@NonNull DaveLoggingSeverity severity) {
+            return DaveLogger.isEnabled(severity);
+        }
+
+        @Override
+        public void onLogSink(
+                @NonNull DaveLoggingSeverity severity,
+                @NonNull MemorySegment file,
+                int line,
+                @NonNull MemorySegment message) {
+            Record record = free.poll();
+            if (record == null) {
+                droppedRecords.increment();
+                return;
+            }
+
+            record.severity = severity;
+            record.line = line;
+            record.fileLength = copyString(file, record.file);
+            record.messageLength = copyString(message, record.message);
+            pending.offer(record);
+            wakeUp();
+        }
+
+        @Override
+        public void run() {
+            long reportedDrops = 0;
+            while (true) {
+                Record record = pending.poll();
+                if (record == null) {
+                    long drops = droppedRecords.sum();
+                    if (drops > reportedDrops) {
+                        log.warn("Dropped {} libdave log records, the async buffer was full", drops - reportedDrops);
+                        reportedDrops = drops;
+                    }
+
+                    // The logging thread checks the flag after offering, so either it sees it or we see its record.
+                    // Drops only happen while records are pending, so they are reported once those are drained.
+                    parked = true;
+                    if (pending.isEmpty()) {
+                        LockSupport.park(this);
+                    }
+                    parked = false;
+                    continue;
+                }
+
+                try {
+                    String file = new String(record.file, 0, record.fileLength, StandardCharsets.UTF_8);
+                    String message = new String(record.message, 0, record.messageLength, StandardCharsets.UTF_8);
+                    log(record.severity, file, record.line, message);
+                } catch (Throwable t) {
+                    log.error("Caught unexpected exception while trying to log message", t);
+                } finally {
+                    free.offer(record);
+                }
+            }
+        }
+
+        // Copies up to the terminating null byte, longer strings are truncated
+        private static int copyString(@NonNull MemorySegment string, byte @NonNull [] target) {
+            if (string.equals(MemorySegment.NULL)) {
+                return 0;
+            }
+
+            MemorySegment bytes = string.reinterpret(target.length);
+            int length = 0;
+            while (length < target.length) {
+                byte value = bytes.get(ValueLayout.JAVA_BYTE, length);
+                if (value == 0) {
+                    break;
+                }
+                target[length++] = value;
+            }
+            return length;
+        }
+    }
+
+    private static class Record {
+        private final byte[] file = new byte[MAX_FILE_LENGTH];
+        private final byte[] message = new byte[MAX_MESSAGE_LENGTH];
+        private DaveLoggingSeverity severity = DaveLoggingSeverity.UNKNOWN;
+        private int line;
+        private int fileLength;
+        private int messageLength;
+    }
 }
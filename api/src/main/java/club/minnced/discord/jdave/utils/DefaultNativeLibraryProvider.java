@@ -0,0 +1,21 @@
+package club.minnced.discord.jdave.utils;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.SymbolLookup;
+import java.util.function.Function;
+import org.jspecify.annotations.NonNull;
+
+record DefaultNativeLibraryProvider(@NonNull String name, @NonNull Function<Arena, SymbolLookup> loader)
+        implements NativeLibraryProvider {
+    @NonNull
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @NonNull
+    @Override
+    public SymbolLookup load(@NonNull Arena arena) {
+        return loader.apply(arena);
+    }
+}
@@ -1,18 +1,47 @@
 package club.minnced.discord.jdave.utils;
 
 import club.minnced.discord.jdave.ffi.LibDaveBindingException;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.foreign.Arena;
 import java.lang.foreign.SymbolLookup;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
 import java.util.Locale;
+import java.util.ServiceLoader;
 import java.util.StringJoiner;
+import java.util.regex.Pattern;
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class NativeLibraryLoader {
+    private static final Logger log = LoggerFactory.getLogger(NativeLibraryLoader.class);
+
+    public static final String CACHE_DIRECTORY_PROPERTY = "jdave.library.cache";
+    public static final String LIBRARY_PATH_PROPERTY = "jdave.library.path";
+    public static final String PROVIDER_PROPERTY = "jdave.library.provider";
+
+    private static final Duration STALE_ENTRY_AGE = Duration.ofDays(7);
+    private static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    private static volatile @Nullable NativeLibraryProvider provider;
+
     @NonNull
     public static NativeLibrary getNativeLibrary() {
         return resolveLibrary("dave");
@@ -22,18 +51,17 @@ public class NativeLibraryLoader {
     public static Path createTemporaryFile() {
         NativeLibrary nativeLibrary = getNativeLibrary();
 
-        try (InputStream library = NativeLibraryLoader.class.getResourceAsStream(nativeLibrary.resourcePath())) {
-            if (library == null) {
-                throw new LibDaveBindingException(
-                        "Could not find resource for current platform. Looked for " + nativeLibrary.resourcePath());
-            }
-
+        try (InputStream library = openResource(nativeLibrary)) {
             Path tempDirectory = Files.createTempDirectory("jdave");
             Path tempFile = Files.createTempFile(
                     tempDirectory,
                     nativeLibrary.libraryName(),
                     "." + nativeLibrary.os().getLibraryExtension());
 
+            // Registered in reverse order of deletion, the directory can only be removed once it is empty
+            tempDirectory.toFile().deleteOnExit();
+            tempFile.toFile().deleteOnExit();
+
             try (OutputStream outputStream = Files.newOutputStream(tempFile)) {
                 library.transferTo(outputStream);
             }
@@ -44,10 +72,259 @@ public class NativeLibraryLoader {
         }
     }
 
+    // Extracts the library into <cacheDirectory>/<sha-256 of the library>/, reusing a previously extracted copy
+    // if its content still matches. Safe to call from multiple processes sharing the same cache directory.
+    @NonNull
+    public static synchronized Path extractToCache(@NonNull Path cacheDirectory) {
+        NativeLibrary nativeLibrary = getNativeLibrary();
+
+        try {
+            // The build ships the hash next to the library, so a warm start does not have to read the library
+            byte[] content = null;
+            String hash = readBundledHash(nativeLibrary);
+            if (hash == null) {
+                content = readResource(nativeLibrary);
+                hash = sha256(content);
+            }
+
+            Path entryDirectory = cacheDirectory.resolve(hash);
+            Path libraryFile = entryDirectory.resolve(nativeLibrary.os().getLibraryName(nativeLibrary.libraryName()));
+
+            Files.createDirectories(cacheDirectory);
+            try (FileChannel lockChannel = FileChannel.open(
+                    cacheDirectory.resolve(".lock"),
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                // Stale entries are only deleted with the exclusive lock held, and a touched entry is never stale,
+                // so the copy cannot be deleted between validating it and loading it
+                try (FileLock ignored = lockChannel.lock(0, Long.MAX_VALUE, true)) {
+                    if (isValidCopy(libraryFile, hash)) {
+                        touch(entryDirectory);
+                        return libraryFile;
+                    }
+                }
+
+                try (FileLock ignored = lockChannel.lock()) {
+                    // Another process might have finished extracting while we were waiting for the lock
+                    if (!isValidCopy(libraryFile, hash)) {
+                        if (content == null) {
+                            content = readResource(nativeLibrary);
+                        }
+                        if (!sha256(content).equals(hash)) {
+                            throw new LibDaveBindingException("Bundled native library does not match its hash");
+                        }
+
+                        Files.createDirectories(entryDirectory);
+                        Path tempFile = Files.createTempFile(entryDirectory, nativeLibrary.libraryName(), ".tmp");
+                        try {
+                            Files.write(tempFile, content);
+                            Files.move(
+                                    tempFile,
+                                    libraryFile,
+                                    StandardCopyOption.ATOMIC_MOVE,
+                                    StandardCopyOption.REPLACE_EXISTING);
+                        } finally {
+                            Files.deleteIfExists(tempFile);
+                        }
+                    }
+
+                    writeStamp(libraryFile, hash);
+                    touch(entryDirectory);
+                    deleteStaleEntries(cacheDirectory, hash);
+                }
+            }
+
+            return libraryFile;
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new LibDaveBindingException(e);
+        }
+    }
+
     @NonNull
     public static SymbolLookup getSymbolLookup() {
-        Path tempFile = createTemporaryFile();
-        return SymbolLookup.libraryLookup(tempFile, Arena.global());
+        NativeLibraryProvider provider = getProvider();
+        log.debug("Loading libdave using the {} native library provider", provider.getName());
+        return provider.load(Arena.global());
+    }
+
+    // Has to be called before LibDave is first used, the library is only loaded once
+    public static void setProvider(@Nullable NativeLibraryProvider provider) {
+        NativeLibraryLoader.provider = provider;
+    }
+
+    @NonNull
+    public static NativeLibraryProvider getProvider() {
+        NativeLibraryProvider explicit = provider;
+        if (explicit != null) {
+            return explicit;
+        }
+
+        String path = System.getProperty(LIBRARY_PATH_PROPERTY);
+        if (path != null) {
+            return NativeLibraryProvider.ofPath(Path.of(path));
+        }
+
+        String name = System.getProperty(PROVIDER_PROPERTY);
+        if (name != null) {
+            return findProvider(name);
+        }
+
+        return ServiceLoader.load(NativeLibraryProvider.class)
+                .findFirst()
+                .orElseGet(NativeLibraryProvider::bundled);
+    }
+
+    @NonNull
+    private static NativeLibraryProvider findProvider(@NonNull String name) {
+        return switch (name) {
+            case "bundled" -> NativeLibraryProvider.bundled();
+            case "system" -> NativeLibraryProvider.system();
+            case "loaded" -> NativeLibraryProvider.loaded();
+            default ->
+                ServiceLoader.load(NativeLibraryProvider.class).stream()
+                        .map(ServiceLoader.Provider::get)
+                        .filter(provider -> provider.getName().equals(name))
+                        .findFirst()
+                        .orElseThrow(() -> new LibDaveBindingException("Unknown native library provider: " + name));
+        };
+    }
+
+    @NonNull
+    static Path extractBundledLibrary() {
+        String cacheDirectory = System.getProperty(CACHE_DIRECTORY_PROPERTY);
+        return cacheDirectory != null ? extractToCache(Path.of(cacheDirectory)) : createTemporaryFile();
+    }
+
+    @NonNull
+    static SymbolLookup lookupSystemLibrary(@NonNull Arena arena) {
+        NativeLibrary nativeLibrary = getNativeLibrary();
+        String fileName = nativeLibrary.os().getLibraryName(nativeLibrary.libraryName());
+
+        String libraryPath = System.getProperty("java.library.path", "");
+        for (String directory : libraryPath.split(File.pathSeparator)) {
+            if (directory.isEmpty()) {
+                continue;
+            }
+
+            Path candidate = Path.of(directory, fileName);
+            if (Files.isRegularFile(candidate)) {
+                return SymbolLookup.libraryLookup(candidate, arena);
+            }
+        }
+
+        try {
+            return SymbolLookup.libraryLookup(fileName, arena);
+        } catch (IllegalArgumentException e) {
+            throw new LibDaveBindingException(
+                    "Could not find " + fileName + " in java.library.path or the system library paths");
+        }
+    }
+
+    @NonNull
+    private static InputStream openResource(@NonNull NativeLibrary nativeLibrary) {
+        InputStream library = NativeLibraryLoader.class.getResourceAsStream(nativeLibrary.resourcePath());
+        if (library == null) {
+            throw new LibDaveBindingException(
+                    "Could not find resource for current platform. Looked for " + nativeLibrary.resourcePath());
+        }
+        return library;
+    }
+
+    @Nullable
+    private static String readBundledHash(@NonNull NativeLibrary nativeLibrary) throws IOException {
+        try (InputStream resource =
+                NativeLibraryLoader.class.getResourceAsStream(nativeLibrary.resourcePath() + ".sha256")) {
+            if (resource == null) {
+                return null;
+            }
+
+            String hash = new String(resource.readAllBytes(), StandardCharsets.US_ASCII).trim();
+            return HASH_PATTERN.matcher(hash).matches() ? hash : null;
+        }
+    }
+
+    private static byte @NonNull [] readResource(@NonNull NativeLibrary nativeLibrary) throws IOException {
+        try (InputStream library = openResource(nativeLibrary)) {
+            return library.readAllBytes();
+        }
+    }
+
+    // A copy is only hashed again if it changed since it was last verified, which is recorded in a stamp file
+    private static boolean isValidCopy(@NonNull Path libraryFile, @NonNull String hash)
+            throws IOException, NoSuchAlgorithmException {
+        if (!Files.isRegularFile(libraryFile)) {
+            return false;
+        }
+
+        Path stampFile = getStampFile(libraryFile);
+        if (Files.isRegularFile(stampFile) && Files.readString(stampFile).equals(stamp(libraryFile, hash))) {
+            return true;
+        }
+
+        return sha256(Files.readAllBytes(libraryFile)).equals(hash);
+    }
+
+    // Called with the exclusive lock held, after the copy was verified
+    private static void writeStamp(@NonNull Path libraryFile, @NonNull String hash) {
+        try {
+            Files.writeString(getStampFile(libraryFile), stamp(libraryFile, hash));
+        } catch (IOException e) {
+            log.debug("Failed to write verification stamp of {}", libraryFile, e);
+        }
+    }
+
+    @NonNull
+    private static Path getStampFile(@NonNull Path libraryFile) {
+        return libraryFile.resolveSibling(libraryFile.getFileName() + ".verified");
+    }
+
+    @NonNull
+    private static String stamp(@NonNull Path libraryFile, @NonNull String hash) throws IOException {
+        return hash + " " + Files.size(libraryFile) + " " + Files.getLastModifiedTime(libraryFile).toMillis();
+    }
+
+    @NonNull
+    private static String sha256(byte @NonNull [] content) throws NoSuchAlgorithmException {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+
+    // The modification time of an entry marks when it was last used, which is what stale entries are judged by
+    private static void touch(@NonNull Path entryDirectory) {
+        try {
+            Files.setLastModifiedTime(entryDirectory, FileTime.from(Instant.now()));
+        } catch (IOException e) {
+            log.debug("Failed to update modification time of {}", entryDirectory, e);
+        }
+    }
+
+    private static void deleteStaleEntries(@NonNull Path cacheDirectory, @NonNull String currentHash) {
+        Instant cutoff = Instant.now().minus(STALE_ENTRY_AGE);
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(cacheDirectory, Files::isDirectory)) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                if (name.equals(currentHash) || !HASH_PATTERN.matcher(name).matches()) {
+                    continue;
+                }
+
+                if (Files.getLastModifiedTime(entry).toInstant().isBefore(cutoff)) {
+                    deleteEntry(entry);
+                }
+            }
+        } catch (IOException e) {
+            log.debug("Failed to clean up stale native libraries in {}", cacheDirectory, e);
+        }
+    }
+
+    private static void deleteEntry(@NonNull Path entry) throws IOException {
+        log.debug("Deleting stale native library {}", entry);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(entry)) {
+            for (Path file : files) {
+                // Can fail on Windows while another process still has the library loaded
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(entry);
     }
 
     @NonNull
@@ -0,0 +1,40 @@
+package club.minnced.discord.jdave.utils;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.SymbolLookup;
+import java.nio.file.Path;
+import org.jspecify.annotations.NonNull;
+
+// Supplies the libdave symbols used by LibDave. Custom providers can be registered through ServiceLoader,
+// selected by name with -Djdave.library.provider, or set with NativeLibraryLoader.setProvider.
+public interface NativeLibraryProvider {
+    @NonNull
+    String getName();
+
+    @NonNull
+    SymbolLookup load(@NonNull Arena arena);
+
+    // The library bundled in the jdave natives jar
+    @NonNull
+    static NativeLibraryProvider bundled() {
+        return new DefaultNativeLibraryProvider(
+                "bundled", arena -> SymbolLookup.libraryLookup(NativeLibraryLoader.extractBundledLibrary(), arena));
+    }
+
+    // A libdave installed on the system, searched in java.library.path and then by the dynamic linker
+    @NonNull
+    static NativeLibraryProvider system() {
+        return new DefaultNativeLibraryProvider("system", NativeLibraryLoader::lookupSystemLibrary);
+    }
+
+    // A libdave that was already loaded with System.load or System.loadLibrary by a class of the jdave class loader
+    @NonNull
+    static NativeLibraryProvider loaded() {
+        return new DefaultNativeLibraryProvider("loaded", arena -> SymbolLookup.loaderLookup());
+    }
+
+    @NonNull
+    static NativeLibraryProvider ofPath(@NonNull Path path) {
+        return new DefaultNativeLibraryProvider("path", arena -> SymbolLookup.libraryLookup(path, arena));
+    }
+}
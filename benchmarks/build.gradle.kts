@@ -0,0 +1,24 @@
+plugins { alias(libs.plugins.jmh) }
+
+dependencies {
+    jmh(project(":native"))
+    jmh(libs.jda)
+    jmh(libs.logback)
+    jmh(libs.jmh.core)
+    jmhAnnotationProcessor(libs.jmh.generator)
+}
+
+jmh {
+    // Reports B/op next to ns/op
+    profilers = listOf("gc")
+    jvmArgsPrepend = listOf("--enable-native-access=ALL-UNNAMED")
+    resultFormat = "JSON"
+
+    // Usage: ./gradlew :benchmarks:jmh -Pjmh.includes=Encryptor -Pjmh.threads=4
+    providers.gradleProperty("jmh.includes").orNull?.let { includes = listOf(it) }
+    providers.gradleProperty("jmh.threads").orNull?.let { threads = it.toInt() }
+    // Libraries compared by ProviderBenchmark, e.g. -Pjmh.library=bundled,/opt/libdave/libdave.so
+    providers.gradleProperty("jmh.library").orNull?.let {
+        benchmarkParameters.put("library", objects.listProperty(String::class.java).value(it.split(",")))
+    }
+}
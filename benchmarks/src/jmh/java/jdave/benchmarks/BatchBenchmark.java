@@ -0,0 +1,118 @@
+package jdave.benchmarks;
+
+import club.minnced.discord.jdave.DaveCodec;
+import club.minnced.discord.jdave.DaveConstants;
+import club.minnced.discord.jdave.DaveDecryptor.DaveDecryptResultType;
+import club.minnced.discord.jdave.DaveEncryptor.DaveEncryptResultType;
+import club.minnced.discord.jdave.DaveMediaType;
+import club.minnced.discord.jdave.manager.DaveSessionManager;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Scores are per burst, divide by batchSize for the per-frame cost. Decrypted frames reach libdave, which rejects
+// them for lack of keys. Without an MLS group, encrypt bursts only measure the passthrough copy.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchBenchmark {
+    @Param({"1", "4", "16", "64"})
+    int batchSize;
+
+    @Param({"120", "1200"})
+    int frameSize;
+
+    private DaveSessionManager manager;
+    private long userId;
+    private int ssrc;
+
+    private ByteBuffer[] plaintext;
+    private ByteBuffer[] encrypted;
+    private ByteBuffer[] received;
+    private ByteBuffer[] decrypted;
+    private DaveEncryptResultType[] encryptResults;
+    private DaveDecryptResultType[] decryptResults;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        manager = DaveSessionManager.create(random.nextLong(), random.nextLong(), new NoopCallbacks());
+        manager.onSelectProtocolAck(DaveConstants.DISABLED_PROTOCOL_VERSION);
+
+        userId = random.nextLong();
+        manager.addUser(userId);
+
+        ssrc = random.nextInt();
+        manager.assignSsrcToCodec(DaveCodec.OPUS, ssrc);
+
+        plaintext = new ByteBuffer[batchSize];
+        encrypted = new ByteBuffer[batchSize];
+        received = new ByteBuffer[batchSize];
+        decrypted = new ByteBuffer[batchSize];
+        encryptResults = new DaveEncryptResultType[batchSize];
+        decryptResults = new DaveDecryptResultType[batchSize];
+
+        for (int i = 0; i < batchSize; i++) {
+            plaintext[i] = Frames.directCopy(Frames.randomFrame(random, frameSize));
+            received[i] = Frames.directCopy(Frames.encryptedFrame(random, frameSize));
+            encrypted[i] = ByteBuffer.allocateDirect(manager.getMaxEncryptedFrameSize(DaveMediaType.AUDIO, frameSize));
+            decrypted[i] = ByteBuffer.allocateDirect(
+                    manager.getMaxDecryptedFrameSize(DaveMediaType.AUDIO, userId, frameSize));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        manager.close();
+    }
+
+    @Benchmark
+    public int encryptBatch() {
+        for (ByteBuffer buffer : encrypted) {
+            buffer.clear();
+        }
+
+        return manager.encrypt(DaveMediaType.AUDIO, ssrc, plaintext, encrypted, encryptResults);
+    }
+
+    @Benchmark
+    public int encryptSequential() {
+        int successful = 0;
+        for (int i = 0; i < batchSize; i++) {
+            encrypted[i].clear();
+            if (manager.encrypt(DaveMediaType.AUDIO, ssrc, plaintext[i], encrypted[i])
+                    == DaveEncryptResultType.SUCCESS) {
+                successful++;
+            }
+        }
+
+        return successful;
+    }
+
+    @Benchmark
+    public int decryptBatch() {
+        for (ByteBuffer buffer : decrypted) {
+            buffer.clear();
+        }
+
+        return manager.decrypt(DaveMediaType.AUDIO, userId, received, decrypted, decryptResults);
+    }
+
+    @Benchmark
+    public int decryptSequential() {
+        int successful = 0;
+        for (int i = 0; i < batchSize; i++) {
+            decrypted[i].clear();
+            if (manager.decrypt(DaveMediaType.AUDIO, userId, received[i], decrypted[i])
+                    == DaveDecryptResultType.SUCCESS) {
+                successful++;
+            }
+        }
+
+        return successful;
+    }
+}
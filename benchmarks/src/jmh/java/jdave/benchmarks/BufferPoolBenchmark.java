@@ -0,0 +1,44 @@
+package jdave.benchmarks;
+
+import club.minnced.discord.jdave.utils.DaveBufferPool;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Output buffer per frame, leased from the pool versus a fresh direct buffer
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BufferPoolBenchmark {
+    // An opus frame, and a keyframe of a video stream
+    @Param({"1024", "262144"})
+    int size;
+
+    private DaveBufferPool pool;
+
+    @Setup
+    public void setup() {
+        pool = new DaveBufferPool();
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Benchmark
+    public void pooled(Blackhole blackhole) {
+        try (DaveBufferPool.Lease lease = pool.lease(size)) {
+            blackhole.consume(lease.buffer());
+        }
+    }
+
+    @Benchmark
+    public ByteBuffer allocateDirect() {
+        return ByteBuffer.allocateDirect(size);
+    }
+}
@@ -0,0 +1,101 @@
+package jdave.benchmarks;
+
+import club.minnced.discord.jdave.DaveConstants;
+import club.minnced.discord.jdave.DaveMediaType;
+import club.minnced.discord.jdave.manager.DaveDecryptPipeline;
+import club.minnced.discord.jdave.manager.DaveSessionManager;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.*;
+
+// Receiving a burst of frames from every speaker of a busy channel, decrypted inline on the receiving thread
+// versus handed to the sharded pipeline. Compare the workers param against the number of available cores.
+// Frames reach libdave, which rejects them for lack of keys, so workers spend their time in the native call.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DecryptPipelineBenchmark {
+    private static final int FRAMES_PER_USER = 16;
+    private static final int MEMBERS = 64;
+    private static final int BURST = MEMBERS * FRAMES_PER_USER;
+
+    @Param({"1", "2", "4", "8"})
+    int workers;
+
+    // Opus frames and small video frames
+    @Param({"120", "8192"})
+    int frameSize;
+
+    private final AtomicLong completed = new AtomicLong();
+
+    private DaveSessionManager manager;
+    private DaveDecryptPipeline pipeline;
+    private long[] userIds;
+    private ByteBuffer[] received;
+    private ByteBuffer[] decrypted;
+    private long submitted;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        manager = DaveSessionManager.create(random.nextLong(), random.nextLong(), new NoopCallbacks());
+        manager.onSelectProtocolAck(DaveConstants.DISABLED_PROTOCOL_VERSION);
+
+        userIds = new long[MEMBERS];
+        received = new ByteBuffer[MEMBERS];
+        decrypted = new ByteBuffer[MEMBERS];
+        for (int i = 0; i < MEMBERS; i++) {
+            userIds[i] = random.nextLong();
+            manager.addUser(userIds[i]);
+            received[i] = Frames.directCopy(Frames.encryptedFrame(random, frameSize));
+            decrypted[i] = ByteBuffer.allocateDirect(
+                    manager.getMaxDecryptedFrameSize(DaveMediaType.AUDIO, userIds[i], frameSize));
+        }
+
+        // Frames of the same user are decrypted one after another, so they can share an output buffer
+        pipeline = DaveDecryptPipeline.builder(
+                        manager, (type, userId, encrypted, output, result) -> completed.incrementAndGet())
+                .setWorkers(workers)
+                .setQueueCapacity(BURST)
+                .setOverflowPolicy(DaveDecryptPipeline.OverflowPolicy.BLOCK)
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        pipeline.close();
+        manager.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void pipeline() {
+        for (int frame = 0; frame < FRAMES_PER_USER; frame++) {
+            for (int i = 0; i < MEMBERS; i++) {
+                pipeline.submit(DaveMediaType.AUDIO, userIds[i], received[i], decrypted[i]);
+            }
+        }
+
+        submitted += BURST;
+        while (completed.get() < submitted) {
+            Thread.onSpinWait();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void inline() {
+        for (int frame = 0; frame < FRAMES_PER_USER; frame++) {
+            for (int i = 0; i < MEMBERS; i++) {
+                ByteBuffer output = decrypted[i];
+                output.clear();
+                manager.decrypt(DaveMediaType.AUDIO, userIds[i], received[i], output);
+            }
+        }
+    }
+}
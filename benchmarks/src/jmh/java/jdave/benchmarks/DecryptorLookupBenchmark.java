@@ -0,0 +1,67 @@
+package jdave.benchmarks;
+
+import club.minnced.discord.jdave.utils.ConcurrentLongMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Per-packet decryptor lookup, as done by DaveSessionManager for every received frame
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DecryptorLookupBenchmark {
+    // A private call, a busy channel, and the maximum channel size
+    @Param({"2", "25", "99"})
+    int members;
+
+    private final ConcurrentLongMap<Object> longMap = new ConcurrentLongMap<>();
+    private final Map<Long, Object> hashMap = new ConcurrentHashMap<>();
+
+    private long[] userIds;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        userIds = new long[members];
+        for (int i = 0; i < members; i++) {
+            // Snowflakes are well above the Long cache range, so lookups always box
+            long userId = (random.nextLong() >>> 1) | (1L << 60);
+            Object decryptor = new Object();
+            userIds[i] = userId;
+            longMap.put(userId, decryptor);
+            hashMap.put(userId, decryptor);
+        }
+    }
+
+    private long nextUserId() {
+        long userId = userIds[next];
+        next = next + 1 == userIds.length ? 0 : next + 1;
+        return userId;
+    }
+
+    @Benchmark
+    public Object concurrentLongMap() {
+        return longMap.get(nextUserId());
+    }
+
+    @Benchmark
+    public Object concurrentHashMap() {
+        return hashMap.get(nextUserId());
+    }
+
+    @Benchmark
+    public long[] concurrentLongMapKeys() {
+        return longMap.keys();
+    }
+
+    @Benchmark
+    public long[] concurrentHashMapKeys() {
+        return hashMap.keySet().stream().mapToLong(id -> id).toArray();
+    }
+}
@@ -0,0 +1,98 @@
+package jdave.benchmarks;
+
+import club.minnced.discord.jdave.DaveCodec;
+import club.minnced.discord.jdave.DaveConstants;
+import club.minnced.discord.jdave.DaveEncryptor;
+import club.minnced.discord.jdave.DaveEncryptor.DaveEncryptorResult;
+import club.minnced.discord.jdave.DaveMediaType;
+import club.minnced.discord.jdave.DaveSessionImpl;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Encrypted mode needs an MLS group, which requires the external sender of a voice gateway. The encryptor stays in
+// passthrough, so these benchmarks measure the Java copy of passthrough frames and never reach daveEncryptorEncrypt.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncryptorBenchmark {
+    // A 20ms Opus frame, a full RTP payload, and multi-KB video frames
+    @Param({"120", "1200", "8192", "65536"})
+    int frameSize;
+
+    private DaveSessionImpl session;
+    private DaveEncryptor encryptor;
+    private int ssrc;
+
+    private ByteBuffer directInput;
+    private ByteBuffer directOutput;
+    private ByteBuffer heapInput;
+    private ByteBuffer heapOutput;
+    private MemorySegment inputSegment;
+    private MemorySegment outputSegment;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        session = DaveSessionImpl.create(null);
+        encryptor = DaveEncryptor.create(session, random.nextLong());
+        encryptor.processTransition(DaveConstants.DISABLED_PROTOCOL_VERSION);
+
+        ssrc = random.nextInt();
+        encryptor.assignSsrcToCodec(DaveCodec.OPUS, ssrc);
+
+        byte[] frame = Frames.randomFrame(random, frameSize);
+        int capacity = (int) encryptor.getMaxCiphertextByteSize(DaveMediaType.AUDIO, frameSize);
+
+        directInput = Frames.directCopy(frame);
+        directOutput = ByteBuffer.allocateDirect(capacity);
+        heapInput = ByteBuffer.wrap(frame);
+        heapOutput = ByteBuffer.allocate(capacity);
+        inputSegment = MemorySegment.ofBuffer(directInput);
+        outputSegment = MemorySegment.ofBuffer(directOutput);
+    }
+
+    @TearDown
+    public void tearDown() {
+        encryptor.close();
+        session.close();
+    }
+
+    @Benchmark
+    public DaveEncryptorResult encryptDirect() {
+        directOutput.clear();
+        return encryptor.encrypt(DaveMediaType.AUDIO, ssrc, directInput, directOutput);
+    }
+
+    @Benchmark
+    public long encryptSegment() {
+        return encryptor.encrypt(DaveMediaType.AUDIO, ssrc, inputSegment, outputSegment);
+    }
+
+    @Benchmark
+    public DaveEncryptorResult encryptHeap() {
+        heapOutput.clear();
+        return encryptor.encrypt(DaveMediaType.AUDIO, ssrc, heapInput, heapOutput);
+    }
+
+    // Critical linkage of daveEncryptorEncrypt only shows once encrypted mode is reachable, until then these variants
+    // run the same passthrough copy. DecryptorBenchmark compares both modes on the native call.
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Djdave.ffi.critical=true")
+    public DaveEncryptorResult encryptDirectCritical() {
+        directOutput.clear();
+        return encryptor.encrypt(DaveMediaType.AUDIO, ssrc, directInput, directOutput);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Djdave.ffi.critical=true")
+    public DaveEncryptorResult encryptHeapCritical() {
+        heapOutput.clear();
+        return encryptor.encrypt(DaveMediaType.AUDIO, ssrc, heapInput, heapOutput);
+    }
+}
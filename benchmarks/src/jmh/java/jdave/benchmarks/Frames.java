@@ -0,0 +1,105 @@
+package jdave.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+final class Frames {
+    private Frames() {}
+
+    // Unencrypted frames must not end with the DAVE magic marker (0xFAFA), or they would be treated as encrypted
+    static byte[] randomFrame(Random random, int size) {
+        byte[] frame = new byte[size];
+        random.nextBytes(frame);
+        frame[size - 1] = 0;
+        return frame;
+    }
+
+    // Random ciphertext followed by a trailer libdave parses: an 8-byte tag, a zero nonce, no unencrypted ranges,
+    // the supplemental size and the magic marker. Fixtures have no MLS group to derive keys from, so libdave rejects
+    // these frames after parsing them, but every call still goes through the native decryptor.
+    static byte[] encryptedFrame(Random random, int size) {
+        byte[] frame = new byte[size];
+        random.nextBytes(frame);
+        writeTrailer(frame);
+        return frame;
+    }
+
+    // Video frames as libdave's codec-aware encryptor produces them: codec headers stay in the clear and are listed
+    // as unencrypted ranges in the trailer, which libdave splits from the ciphertext before rejecting the frame
+    static byte[] encryptedVideoFrame(Random random, String codec, int size) {
+        byte[] frame = videoFrame(random, codec, size);
+        switch (codec) {
+            case "VP8" -> writeTrailer(frame, 0, 10);
+            // Parameter sets stay in the clear, slices only keep their start code and headers
+            case "H264" -> writeTrailer(frame, 0, 23);
+            case "H265" -> writeTrailer(frame, 0, 31);
+            case "AV1" -> writeTrailer(frame, 0, 3);
+            default -> writeTrailer(frame);
+        }
+        return frame;
+    }
+
+    // Ranges are pairs of offset and size, all below 128 so each fits into a single ULEB128 byte
+    private static void writeTrailer(byte[] frame, int... unencryptedRanges) {
+        int supplementalSize = 12 + unencryptedRanges.length;
+        int nonceOffset = frame.length - supplementalSize + 8;
+        frame[nonceOffset] = 0;
+        for (int i = 0; i < unencryptedRanges.length; i++) {
+            frame[nonceOffset + 1 + i] = (byte) unencryptedRanges[i];
+        }
+        writeAt(frame, frame.length - 3, supplementalSize, 0xFA, 0xFA);
+    }
+
+    // Keyframes shaped like the codec's bitstream, so codec-aware processing in libdave sees realistic headers
+    static byte[] videoFrame(Random random, String codec, int size) {
+        byte[] frame = randomFrame(random, size);
+        switch (codec) {
+            case "VP8" -> {
+                // Frame tag of a keyframe, followed by the start code and dimensions
+                writeAt(frame, 0, 0x10, 0x02, 0x00, 0x9d, 0x01, 0x2a, 0x80, 0x07, 0x38, 0x04);
+            }
+            case "H264" -> {
+                removeStartCodes(frame);
+                // Annex B SPS, PPS and IDR slice NAL units
+                writeAt(frame, 0, 0, 0, 0, 1, 0x67, 0x42, 0xc0, 0x1f);
+                writeAt(frame, 8, 0, 0, 0, 1, 0x68, 0xce, 0x3c, 0x80);
+                writeAt(frame, 16, 0, 0, 0, 1, 0x65, 0x88, 0x84);
+            }
+            case "H265" -> {
+                removeStartCodes(frame);
+                // Annex B VPS, SPS, PPS and IDR slice NAL units
+                writeAt(frame, 0, 0, 0, 0, 1, 0x40, 0x01, 0x0c, 0x01);
+                writeAt(frame, 8, 0, 0, 0, 1, 0x42, 0x01, 0x01, 0x01);
+                writeAt(frame, 16, 0, 0, 0, 1, 0x44, 0x01, 0xc1, 0x72);
+                writeAt(frame, 24, 0, 0, 0, 1, 0x26, 0x01, 0xaf);
+            }
+            case "AV1" -> {
+                // Temporal delimiter OBU, then a frame OBU without size field spanning the rest of the frame
+                writeAt(frame, 0, 0x12, 0x00, 0x30);
+            }
+            default -> {
+                // VP9 frames are encrypted as a whole
+            }
+        }
+        return frame;
+    }
+
+    private static void writeAt(byte[] frame, int offset, int... bytes) {
+        for (int i = 0; i < bytes.length; i++) {
+            frame[offset + i] = (byte) bytes[i];
+        }
+    }
+
+    // Random payloads would otherwise contain accidental NAL unit start codes
+    private static void removeStartCodes(byte[] frame) {
+        for (int i = 0; i < frame.length - 1; i++) {
+            if (frame[i] == 0) {
+                frame[i] = 1;
+            }
+        }
+    }
+
+    static ByteBuffer directCopy(byte[] frame) {
+        return ByteBuffer.allocateDirect(frame.length).put(frame).flip();
+    }
+}
@@ -0,0 +1,67 @@
+package jdave.benchmarks;
+
+import club.minnced.discord.jdave.DaveConstants;
+import club.minnced.discord.jdave.interop.JDaveSession;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import net.dv8tion.jda.api.audio.dave.DaveSession;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JDaveSessionBenchmark {
+    // A 20ms Opus frame, a full RTP payload, and multi-KB video frames
+    @Param({"120", "1200", "8192", "65536"})
+    int frameSize;
+
+    private JDaveSession session;
+    private long userId;
+    private int ssrc;
+
+    private ByteBuffer plaintext;
+    private ByteBuffer encrypted;
+    private ByteBuffer received;
+    private ByteBuffer decrypted;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        session = new JDaveSession(random.nextLong(), random.nextLong(), new NoopCallbacks());
+        session.onSelectProtocolAck(DaveConstants.DISABLED_PROTOCOL_VERSION);
+
+        userId = random.nextLong();
+        session.addUser(userId);
+
+        ssrc = random.nextInt();
+        session.assignSsrcToCodec(DaveSession.Codec.OPUS, ssrc);
+
+        // Encrypting copies the frame in passthrough, decrypting reaches libdave, which rejects it for lack of keys
+        plaintext = Frames.directCopy(Frames.randomFrame(random, frameSize));
+        received = Frames.directCopy(Frames.encryptedFrame(random, frameSize));
+        encrypted = ByteBuffer.allocateDirect(session.getMaxEncryptedFrameSize(DaveSession.MediaType.AUDIO, frameSize));
+        decrypted = ByteBuffer.allocateDirect(
+                session.getMaxDecryptedFrameSize(DaveSession.MediaType.AUDIO, userId, frameSize));
+    }
+
+    @TearDown
+    public void tearDown() {
+        session.destroy();
+    }
+
+    @Benchmark
+    public boolean encrypt() {
+        encrypted.clear();
+        return session.encrypt(DaveSession.MediaType.AUDIO, ssrc, plaintext, encrypted);
+    }
+
+    @Benchmark
+    public boolean decrypt() {
+        decrypted.clear();
+        return session.decrypt(DaveSession.MediaType.AUDIO, userId, received, decrypted);
+    }
+}
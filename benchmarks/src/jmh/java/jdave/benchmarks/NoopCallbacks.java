@@ -0,0 +1,19 @@
+package jdave.benchmarks;
+
+import club.minnced.discord.jdave.manager.DaveSessionManagerCallbacks;
+import java.nio.ByteBuffer;
+import net.dv8tion.jda.api.audio.dave.DaveProtocolCallbacks;
+
+final class NoopCallbacks implements DaveSessionManagerCallbacks, DaveProtocolCallbacks {
+    @Override
+    public void sendMLSKeyPackage(ByteBuffer mlsKeyPackage) {}
+
+    @Override
+    public void sendDaveProtocolReadyForTransition(int transitionId) {}
+
+    @Override
+    public void sendMLSCommitWelcome(ByteBuffer commitWelcomeMessage) {}
+
+    @Override
+    public void sendMLSInvalidCommitWelcome(int transitionId) {}
+}
@@ -0,0 +1,84 @@
+package jdave.benchmarks;
+
+import club.minnced.discord.jdave.DaveCodec;
+import club.minnced.discord.jdave.DaveConstants;
+import club.minnced.discord.jdave.DaveDecryptor;
+import club.minnced.discord.jdave.DaveEncryptor;
+import club.minnced.discord.jdave.DaveMediaType;
+import club.minnced.discord.jdave.DaveSessionImpl;
+import club.minnced.discord.jdave.utils.NativeLibraryLoader;
+import java.lang.foreign.MemorySegment;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Compares libdave builds, e.g. -Pjmh.library=bundled,/opt/libdave/libdave.so
+// Values containing a path separator are loaded from that file, anything else is a provider name.
+// Decrypt reaches the library, which rejects the frame for lack of keys. Without an MLS group the encryptor copies
+// frames in Java, so encrypt scores do not depend on the library.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProviderBenchmark {
+    @Param({"bundled"})
+    String library;
+
+    @Param({"120", "8192"})
+    int frameSize;
+
+    private DaveSessionImpl session;
+    private DaveEncryptor encryptor;
+    private DaveDecryptor decryptor;
+    private int ssrc;
+
+    private MemorySegment input;
+    private MemorySegment received;
+    private MemorySegment encrypted;
+    private MemorySegment decrypted;
+
+    @Setup
+    public void setup() {
+        // Every parameter combination runs in its own fork, so the library has not been loaded yet
+        if (library.contains("/") || library.contains("\\")) {
+            System.setProperty(NativeLibraryLoader.LIBRARY_PATH_PROPERTY, library);
+        } else {
+            System.setProperty(NativeLibraryLoader.PROVIDER_PROPERTY, library);
+        }
+
+        Random random = new Random(42);
+        session = DaveSessionImpl.create(null);
+        encryptor = DaveEncryptor.create(session, random.nextLong());
+        encryptor.processTransition(DaveConstants.DISABLED_PROTOCOL_VERSION);
+        decryptor = DaveDecryptor.create(random.nextLong(), session);
+        decryptor.prepareTransition(DaveConstants.DISABLED_PROTOCOL_VERSION);
+
+        ssrc = random.nextInt();
+        encryptor.assignSsrcToCodec(DaveCodec.OPUS, ssrc);
+
+        byte[] frame = Frames.randomFrame(random, frameSize);
+        input = MemorySegment.ofBuffer(Frames.directCopy(frame));
+        received = MemorySegment.ofBuffer(Frames.directCopy(Frames.encryptedFrame(random, frameSize)));
+        encrypted = MemorySegment.ofBuffer(Frames.directCopy(frame));
+        decrypted = MemorySegment.ofBuffer(Frames.directCopy(frame));
+    }
+
+    @TearDown
+    public void tearDown() {
+        decryptor.close();
+        encryptor.close();
+        session.close();
+    }
+
+    @Benchmark
+    public long encrypt() {
+        return encryptor.encrypt(DaveMediaType.AUDIO, ssrc, input, encrypted);
+    }
+
+    @Benchmark
+    public long decrypt() {
+        return decryptor.decrypt(DaveMediaType.AUDIO, received, decrypted);
+    }
+}
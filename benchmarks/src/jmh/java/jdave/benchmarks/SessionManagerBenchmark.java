@@ -0,0 +1,87 @@
+package jdave.benchmarks;
+
+import club.minnced.discord.jdave.DaveCodec;
+import club.minnced.discord.jdave.DaveConstants;
+import club.minnced.discord.jdave.DaveDecryptor.DaveDecryptResultType;
+import club.minnced.discord.jdave.DaveEncryptor.DaveEncryptResultType;
+import club.minnced.discord.jdave.DaveMediaType;
+import club.minnced.discord.jdave.manager.DaveSessionManager;
+import club.minnced.discord.jdave.metrics.DaveMetricsCollector;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SessionManagerBenchmark {
+    // A 20ms Opus frame, a full RTP payload, and multi-KB video frames
+    @Param({"120", "1200", "8192", "65536"})
+    int frameSize;
+
+    // Cost of leaving a metrics collector enabled on the data plane
+    @Param({"false", "true"})
+    boolean metrics;
+
+    private DaveSessionManager manager;
+    private long userId;
+    private int ssrc;
+
+    private ByteBuffer plaintext;
+    private ByteBuffer encrypted;
+    private ByteBuffer received;
+    private ByteBuffer decrypted;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        manager = DaveSessionManager.create(random.nextLong(), random.nextLong(), new NoopCallbacks());
+        manager.onSelectProtocolAck(DaveConstants.DISABLED_PROTOCOL_VERSION);
+        if (metrics) {
+            manager.setMetrics(DaveMetricsCollector.create());
+        }
+
+        userId = random.nextLong();
+        manager.addUser(userId);
+
+        ssrc = random.nextInt();
+        manager.assignSsrcToCodec(DaveCodec.OPUS, ssrc);
+
+        // Encrypting copies the frame in passthrough, decrypting reaches libdave, which rejects it for lack of keys
+        plaintext = Frames.directCopy(Frames.randomFrame(random, frameSize));
+        received = Frames.directCopy(Frames.encryptedFrame(random, frameSize));
+        encrypted = ByteBuffer.allocateDirect(manager.getMaxEncryptedFrameSize(DaveMediaType.AUDIO, frameSize));
+        decrypted = ByteBuffer.allocateDirect(manager.getMaxDecryptedFrameSize(DaveMediaType.AUDIO, userId, frameSize));
+    }
+
+    @TearDown
+    public void tearDown() {
+        manager.close();
+    }
+
+    @Benchmark
+    public DaveEncryptResultType encrypt() {
+        encrypted.clear();
+        return manager.encrypt(DaveMediaType.AUDIO, ssrc, plaintext, encrypted);
+    }
+
+    @Benchmark
+    public DaveDecryptResultType decrypt() {
+        decrypted.clear();
+        return manager.decrypt(DaveMediaType.AUDIO, userId, received, decrypted);
+    }
+
+    @Benchmark
+    public int maxEncryptedFrameSize() {
+        return manager.getMaxEncryptedFrameSize(DaveMediaType.AUDIO, frameSize);
+    }
+
+    @Benchmark
+    public int maxDecryptedFrameSize() {
+        return manager.getMaxDecryptedFrameSize(DaveMediaType.AUDIO, userId, frameSize);
+    }
+}
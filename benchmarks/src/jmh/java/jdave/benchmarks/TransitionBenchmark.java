@@ -0,0 +1,68 @@
+package jdave.benchmarks;
+
+import club.minnced.discord.jdave.manager.DaveSessionManager;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Latency of a protocol transition, from prepare until the ready signal is sent and the transition is executed.
+// Without a voice gateway the session never joins an MLS group, so libdave hands out empty ratchets here.
+// This measures the per-member downcalls and the fan-out overhead, not the full key derivation cost.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransitionBenchmark {
+    private static final int PROTOCOL_VERSION = 1;
+
+    @Param({"2", "25", "99"})
+    int members;
+
+    @Param({"sequential", "forkjoin", "virtual"})
+    String executor;
+
+    private DaveSessionManager manager;
+    private ExecutorService virtualThreads;
+    private int transitionId;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        manager = DaveSessionManager.create(random.nextLong(), random.nextLong(), new NoopCallbacks());
+        manager.onSelectProtocolAck(PROTOCOL_VERSION);
+
+        for (int i = 0; i < members; i++) {
+            manager.addUser(random.nextLong());
+        }
+
+        switch (executor) {
+            case "forkjoin" -> manager.setTransitionExecutor(ForkJoinPool.commonPool());
+            case "virtual" -> {
+                virtualThreads = Executors.newVirtualThreadPerTaskExecutor();
+                manager.setTransitionExecutor(virtualThreads);
+            }
+            default -> manager.setTransitionExecutor(null);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        manager.close();
+        if (virtualThreads != null) {
+            virtualThreads.close();
+        }
+    }
+
+    @Benchmark
+    public void transition() {
+        // Transition ID 0 is reserved for the init transition
+        transitionId = transitionId == Integer.MAX_VALUE ? 1 : transitionId + 1;
+        manager.onDaveProtocolPrepareTransition(transitionId, PROTOCOL_VERSION);
+        manager.onDaveProtocolExecuteTransition(transitionId);
+    }
+}
@@ -0,0 +1,90 @@
+package jdave.benchmarks;
+
+import club.minnced.discord.jdave.DaveConstants;
+import club.minnced.discord.jdave.interop.JDaveSession;
+import club.minnced.discord.jdave.utils.DaveBufferPool;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import net.dv8tion.jda.api.audio.dave.DaveSession;
+import org.openjdk.jmh.annotations.*;
+
+// Video throughput through JDaveSession, reported as MB/s by the megabytes counter.
+// Received frames carry the unencrypted ranges of their codec, which libdave splits from the ciphertext before it
+// rejects the frame for lack of keys. Without an MLS group, encrypting only measures the passthrough copy.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VideoBenchmark {
+    @Param({"VP8", "VP9", "H264", "H265", "AV1"})
+    String codec;
+
+    // Delta frames, typical keyframes, and large high-resolution keyframes
+    @Param({"8192", "65536", "262144"})
+    int frameSize;
+
+    private JDaveSession session;
+    private long userId;
+    private int ssrc;
+
+    private ByteBuffer plaintext;
+    private ByteBuffer received;
+    private int maxEncryptedSize;
+    private int maxDecryptedSize;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Throughput {
+        public double megabytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            megabytes = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        session = new JDaveSession(random.nextLong(), random.nextLong(), new NoopCallbacks());
+        session.onSelectProtocolAck(DaveConstants.DISABLED_PROTOCOL_VERSION);
+
+        userId = random.nextLong();
+        session.addUser(userId);
+
+        ssrc = random.nextInt();
+        session.assignSsrcToCodec(DaveSession.Codec.valueOf(codec), ssrc);
+
+        plaintext = Frames.directCopy(Frames.videoFrame(random, codec, frameSize));
+        received = Frames.directCopy(Frames.encryptedVideoFrame(random, codec, frameSize));
+        maxEncryptedSize = session.getMaxEncryptedFrameSize(DaveSession.MediaType.VIDEO, frameSize);
+        maxDecryptedSize = session.getMaxDecryptedFrameSize(DaveSession.MediaType.VIDEO, userId, frameSize);
+    }
+
+    @TearDown
+    public void tearDown() {
+        session.destroy();
+    }
+
+    // Output buffers are leased per frame from the pool the session uses, sized from the frame size bounds
+    @Benchmark
+    public boolean encrypt(Throughput throughput) {
+        try (DaveBufferPool.Lease lease = DaveBufferPool.getDefault().lease(maxEncryptedSize)) {
+            boolean success = session.encrypt(DaveSession.MediaType.VIDEO, ssrc, plaintext, lease.buffer());
+            throughput.megabytes += frameSize / 1e6;
+            return success;
+        }
+    }
+
+    @Benchmark
+    public boolean decrypt(Throughput throughput) {
+        try (DaveBufferPool.Lease lease = DaveBufferPool.getDefault().lease(maxDecryptedSize)) {
+            boolean success = session.decrypt(DaveSession.MediaType.VIDEO, userId, received, lease.buffer());
+            throughput.megabytes += frameSize / 1e6;
+            return success;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 import de.undercouch.gradle.tasks.download.Download
 import java.nio.file.Files
+import java.security.MessageDigest
+import java.util.HexFormat
 import jdave.gradle.Architecture
 import jdave.gradle.OperatingSystem
 import jdave.gradle.getPlatform
@@ -61,6 +63,16 @@ val assembleNatives by
         }
 
         into(layout.buildDirectory.dir("$nativeResourceRoot/natives/${getPlatform()}"))
+
+        // Lets the loader validate its cached copy without hashing the bundled library on every start
+        doLast {
+            destinationDir
+                .listFiles { file -> file.isFile && !file.name.endsWith(".sha256") }
+                ?.forEach { file ->
+                    val digest = MessageDigest.getInstance("SHA-256").digest(file.readBytes())
+                    file.resolveSibling("${file.name}.sha256").writeText(HexFormat.of().formatHex(digest))
+                }
+        }
     }
 
 tasks.processResources {
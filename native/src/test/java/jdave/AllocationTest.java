@@ -0,0 +1,155 @@
+package jdave;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import club.minnced.discord.jdave.DaveCodec;
+import club.minnced.discord.jdave.DaveConstants;
+import club.minnced.discord.jdave.DaveDecryptor;
+import club.minnced.discord.jdave.DaveDecryptor.DaveDecryptResultType;
+import club.minnced.discord.jdave.DaveEncryptor;
+import club.minnced.discord.jdave.DaveEncryptor.DaveEncryptResultType;
+import club.minnced.discord.jdave.DaveMediaType;
+import club.minnced.discord.jdave.DaveSessionImpl;
+import club.minnced.discord.jdave.manager.DaveSessionManager;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class AllocationTest {
+    private static final int WARMUP_ITERATIONS = 200_000;
+    private static final int MEASURED_ITERATIONS = 100_000;
+    private static final int FRAME_SIZE = 512;
+    // MemorySegment.ofBuffer allocates a segment and a session for each buffer
+    private static final int MAX_BUFFER_WRAPPING_BYTES = 256;
+
+    private static final com.sun.management.ThreadMXBean threadBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void testDecryptHotPathAllocation() {
+        Random random = new Random(42);
+
+        try (Arena arena = Arena.ofConfined();
+                DaveSessionImpl session = DaveSessionImpl.create(null);
+                DaveDecryptor decryptor = DaveDecryptor.create(random.nextLong(), session)) {
+            decryptor.prepareTransition(DaveConstants.DISABLED_PROTOCOL_VERSION);
+
+            // Each frame takes a handle reference for the downcall, where libdave rejects it for lack of keys
+            MemorySegment input = arena.allocate(FRAME_SIZE);
+            MemorySegment output = arena.allocate(FRAME_SIZE);
+            input.copyFrom(MemorySegment.ofArray(Frames.encryptedFrame(random, FRAME_SIZE)));
+
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                assertEquals(-1, decryptor.decrypt(DaveMediaType.AUDIO, input, output));
+            }
+
+            assertAllocatedPerFrame(0, () -> decryptor.decrypt(DaveMediaType.AUDIO, input, output));
+        }
+    }
+
+    // Without an MLS group the encryptor stays in passthrough, so this covers the copy but not the downcall
+    @Test
+    void testPassthroughEncryptAllocation() {
+        Random random = new Random(42);
+        long selfUserId = random.nextLong();
+
+        try (Arena arena = Arena.ofConfined();
+                DaveSessionImpl session = DaveSessionImpl.create(null);
+                DaveEncryptor encryptor = DaveEncryptor.create(session, selfUserId)) {
+            encryptor.prepareTransition(DaveConstants.DISABLED_PROTOCOL_VERSION);
+            encryptor.processTransition(DaveConstants.DISABLED_PROTOCOL_VERSION);
+
+            int ssrc = random.nextInt();
+            encryptor.assignSsrcToCodec(DaveCodec.OPUS, ssrc);
+
+            byte[] plaintext = new byte[FRAME_SIZE];
+            random.nextBytes(plaintext);
+
+            MemorySegment input = arena.allocate(FRAME_SIZE);
+            MemorySegment output = arena.allocate(FRAME_SIZE);
+            input.copyFrom(MemorySegment.ofArray(plaintext));
+
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                assertEquals(FRAME_SIZE, encryptor.encrypt(DaveMediaType.AUDIO, ssrc, input, output));
+            }
+
+            assertAllocatedPerFrame(0, () -> encryptor.encrypt(DaveMediaType.AUDIO, ssrc, input, output));
+        }
+    }
+
+    // The ByteBuffer overloads used by JDA only allocate the segments wrapping the buffers
+    @Test
+    void testManagerDecryptAllocation() {
+        Random random = new Random(42);
+        long userId = random.nextLong();
+
+        try (DaveSessionManager manager =
+                DaveSessionManager.create(random.nextLong(), random.nextLong(), new NoopCallbacks())) {
+            manager.onSelectProtocolAck(DaveConstants.DISABLED_PROTOCOL_VERSION);
+            manager.addUser(userId);
+
+            ByteBuffer frame = Frames.directCopy(Frames.encryptedFrame(random, FRAME_SIZE));
+            ByteBuffer output = ByteBuffer.allocateDirect(FRAME_SIZE);
+            Runnable decrypt = () -> {
+                output.clear();
+                manager.decrypt(DaveMediaType.AUDIO, userId, frame, output);
+            };
+
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                decrypt.run();
+            }
+            assertEquals(DaveDecryptResultType.FAILURE, manager.decrypt(DaveMediaType.AUDIO, userId, frame, output));
+
+            assertAllocatedPerFrame(MAX_BUFFER_WRAPPING_BYTES, decrypt);
+        }
+    }
+
+    @Test
+    void testManagerEncryptAllocation() {
+        Random random = new Random(42);
+
+        try (DaveSessionManager manager =
+                DaveSessionManager.create(random.nextLong(), random.nextLong(), new NoopCallbacks())) {
+            manager.onSelectProtocolAck(DaveConstants.DISABLED_PROTOCOL_VERSION);
+
+            int ssrc = random.nextInt();
+            manager.assignSsrcToCodec(DaveCodec.OPUS, ssrc);
+
+            byte[] plaintext = new byte[FRAME_SIZE];
+            random.nextBytes(plaintext);
+            plaintext[FRAME_SIZE - 1] = 0;
+
+            ByteBuffer frame = Frames.directCopy(plaintext);
+            ByteBuffer output = ByteBuffer.allocateDirect(FRAME_SIZE);
+            Runnable encrypt = () -> {
+                output.clear();
+                manager.encrypt(DaveMediaType.AUDIO, ssrc, frame, output);
+            };
+
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                encrypt.run();
+            }
+            output.clear();
+            assertEquals(DaveEncryptResultType.SUCCESS, manager.encrypt(DaveMediaType.AUDIO, ssrc, frame, output));
+
+            assertAllocatedPerFrame(MAX_BUFFER_WRAPPING_BYTES, encrypt);
+        }
+    }
+
+    private static void assertAllocatedPerFrame(int maxBytes, Runnable frame) {
+        long threadId = Thread.currentThread().threadId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            frame.run();
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        // Allow for some noise from the JIT, but nothing beyond the expected bytes per frame
+        double bytesPerFrame = (double) allocated / MEASURED_ITERATIONS;
+        assertTrue(bytesPerFrame < maxBytes + 1, "Allocated " + bytesPerFrame + " bytes per frame");
+    }
+}
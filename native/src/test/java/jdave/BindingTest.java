@@ -1,14 +1,20 @@
 package jdave;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import club.minnced.discord.jdave.DaveCodec;
 import club.minnced.discord.jdave.DaveConstants;
+import club.minnced.discord.jdave.DaveDecryptor;
 import club.minnced.discord.jdave.DaveEncryptor;
 import club.minnced.discord.jdave.DaveMediaType;
 import club.minnced.discord.jdave.DaveSessionImpl;
 import club.minnced.discord.jdave.ffi.LibDave;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
 import java.nio.ByteBuffer;
 import java.util.Random;
 import org.junit.jupiter.api.BeforeEach;
@@ -68,4 +74,153 @@ class BindingTest {
             }
         }
     }
+
+    @Test
+    void testEncryptorPreparedTransition() {
+        Random random = new Random(42);
+        long selfUserId = random.nextLong();
+        int transitionId = 1;
+
+        try (DaveSessionImpl session = DaveSessionImpl.create(null);
+                DaveEncryptor encryptor = DaveEncryptor.create(session, selfUserId)) {
+            encryptor.prepareTransition(transitionId, DaveConstants.DISABLED_PROTOCOL_VERSION);
+
+            assertTrue(encryptor.executeTransition(transitionId));
+            assertFalse(encryptor.executeTransition(transitionId));
+
+            int ssrc = random.nextInt();
+            encryptor.assignSsrcToCodec(DaveCodec.OPUS, ssrc);
+
+            ByteBuffer input = ByteBuffer.allocateDirect(64);
+            ByteBuffer output = ByteBuffer.allocateDirect(64);
+            DaveEncryptor.DaveEncryptorResult result = encryptor.encrypt(DaveMediaType.AUDIO, ssrc, input, output);
+
+            assertEquals(DaveEncryptor.DaveEncryptResultType.SUCCESS, result.type());
+        }
+    }
+
+    @Test
+    void testDecryptInPlacePassthrough() {
+        Random random = new Random(42);
+
+        try (DaveSessionImpl session = DaveSessionImpl.create(null);
+                DaveDecryptor decryptor = DaveDecryptor.create(random.nextLong(), session)) {
+            decryptor.prepareTransition(DaveConstants.DISABLED_PROTOCOL_VERSION);
+
+            byte[] plaintext = new byte[512];
+            random.nextBytes(plaintext);
+
+            // Direct buffers are decrypted in their own memory, heap buffers are staged through a pooled buffer
+            for (ByteBuffer frame : new ByteBuffer[] {ByteBuffer.allocateDirect(1024), ByteBuffer.allocate(1024)}) {
+                frame.position(100);
+                frame.put(plaintext);
+                frame.flip().position(100);
+
+                DaveDecryptor.DaveDecryptResult result = decryptor.decryptInPlace(DaveMediaType.AUDIO, frame);
+
+                assertEquals(DaveDecryptor.DaveDecryptResultType.SUCCESS, result.type());
+                assertEquals(plaintext.length, result.bytesWritten());
+                assertEquals(100, frame.position());
+                assertEquals(100 + plaintext.length, frame.limit());
+
+                byte[] decrypted = new byte[plaintext.length];
+                frame.get(decrypted);
+                assertArrayEquals(plaintext, decrypted);
+            }
+        }
+    }
+
+    @Test
+    void testDecryptInPlaceFailureLeavesFrameUntouched() {
+        Random random = new Random(42);
+
+        try (Arena arena = Arena.ofConfined();
+                DaveSessionImpl session = DaveSessionImpl.create(null);
+                DaveDecryptor decryptor = DaveDecryptor.create(random.nextLong(), session)) {
+            decryptor.prepareTransition(DaveConstants.DISABLED_PROTOCOL_VERSION);
+
+            // The frame is a slice of a larger segment, the bytes after it must survive the rejected downcall
+            byte[] encrypted = Frames.encryptedFrame(random, 512);
+            MemorySegment memory = arena.allocate(encrypted.length + 64);
+            memory.fill((byte) 0x5A);
+            MemorySegment frame = memory.asSlice(0, encrypted.length);
+            frame.copyFrom(MemorySegment.ofArray(encrypted));
+
+            assertEquals(-1, decryptor.decryptInPlace(DaveMediaType.AUDIO, frame));
+            assertArrayEquals(encrypted, frame.toArray(ValueLayout.JAVA_BYTE));
+            for (byte b : memory.asSlice(encrypted.length).toArray(ValueLayout.JAVA_BYTE)) {
+                assertEquals((byte) 0x5A, b);
+            }
+
+            // Direct buffers take the same path and report the failure without moving the limit
+            ByteBuffer buffer = Frames.directCopy(encrypted);
+            DaveDecryptor.DaveDecryptResult result = decryptor.decryptInPlace(DaveMediaType.AUDIO, buffer);
+            assertEquals(DaveDecryptor.DaveDecryptResultType.FAILURE, result.type());
+            assertEquals(encrypted.length, buffer.limit());
+            byte[] content = new byte[encrypted.length];
+            buffer.get(content);
+            assertArrayEquals(encrypted, content);
+        }
+    }
+
+    @Test
+    void testPassthroughCopiesFrames() {
+        Random random = new Random(42);
+
+        try (DaveSessionImpl session = DaveSessionImpl.create(null);
+                DaveEncryptor encryptor = DaveEncryptor.create(session, random.nextLong())) {
+            encryptor.processTransition(DaveConstants.DISABLED_PROTOCOL_VERSION);
+            assertTrue(encryptor.isPassthrough());
+
+            byte[] plaintext = new byte[256];
+            random.nextBytes(plaintext);
+
+            ByteBuffer output = ByteBuffer.allocate(300);
+            DaveEncryptor.DaveEncryptorResult result =
+                    encryptor.encrypt(DaveMediaType.AUDIO, random.nextInt(), ByteBuffer.wrap(plaintext), output);
+
+            assertEquals(DaveEncryptor.DaveEncryptResultType.SUCCESS, result.type());
+            assertEquals(plaintext.length, output.remaining());
+            byte[] copied = new byte[plaintext.length];
+            output.get(copied);
+            assertArrayEquals(plaintext, copied);
+
+            // Like libdave, a frame that does not fit is rejected instead of truncated
+            result = encryptor.encrypt(
+                    DaveMediaType.AUDIO, random.nextInt(), ByteBuffer.wrap(plaintext), ByteBuffer.allocate(100));
+            assertEquals(DaveEncryptor.DaveEncryptResultType.FAILURE, result.type());
+        }
+    }
+
+    @Test
+    void testOpusSilenceOutsidePassthrough() {
+        Random random = new Random(42);
+        byte[] silence = {(byte) 0xF8, (byte) 0xFF, (byte) 0xFE};
+
+        try (DaveSessionImpl session = DaveSessionImpl.create(null);
+                DaveDecryptor decryptor = DaveDecryptor.create(random.nextLong(), session)) {
+            assertFalse(decryptor.acceptsUnencryptedFrames());
+
+            // libdave lets silence through on audio streams even when unencrypted frames are rejected
+            ByteBuffer output = ByteBuffer.allocateDirect(16);
+            DaveDecryptor.DaveDecryptResult result =
+                    decryptor.decrypt(DaveMediaType.AUDIO, ByteBuffer.wrap(silence), output);
+            assertEquals(DaveDecryptor.DaveDecryptResultType.SUCCESS, result.type());
+            assertEquals(silence.length, result.bytesWritten());
+            byte[] copied = new byte[silence.length];
+            output.get(copied);
+            assertArrayEquals(silence, copied);
+
+            ByteBuffer frame = ByteBuffer.allocateDirect(silence.length).put(silence).flip();
+            assertEquals(
+                    DaveDecryptor.DaveDecryptResultType.SUCCESS,
+                    decryptor.decryptInPlace(DaveMediaType.AUDIO, frame).type());
+
+            // Only audio frames are treated as silence
+            result = decryptor.decrypt(DaveMediaType.VIDEO, ByteBuffer.wrap(silence), ByteBuffer.allocate(16));
+            assertEquals(DaveDecryptor.DaveDecryptResultType.FAILURE, result.type());
+            result = decryptor.decrypt(DaveMediaType.AUDIO, ByteBuffer.wrap(new byte[] {1, 2, 3}), output.clear());
+            assertEquals(DaveDecryptor.DaveDecryptResultType.FAILURE, result.type());
+        }
+    }
 }
@@ -0,0 +1,69 @@
+package jdave;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import club.minnced.discord.jdave.utils.BoundedMpmcQueue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class BoundedMpmcQueueTest {
+    @Test
+    void testBounded() {
+        BoundedMpmcQueue<Integer> queue = new BoundedMpmcQueue<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(i));
+        }
+        assertFalse(queue.offer(4));
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i, (int) queue.poll());
+        }
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void testConcurrentProducersAndConsumers() throws InterruptedException {
+        int threads = 4;
+        int perProducer = 100_000;
+        BoundedMpmcQueue<Long> queue = new BoundedMpmcQueue<>(64);
+        AtomicLong consumedSum = new AtomicLong();
+        AtomicLong consumedCount = new AtomicLong();
+
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long offset = (long) t * perProducer;
+            workers.add(Thread.ofPlatform().start(() -> {
+                for (long i = 0; i < perProducer; i++) {
+                    while (!queue.offer(offset + i)) {
+                        Thread.yield();
+                    }
+                }
+            }));
+            workers.add(Thread.ofPlatform().start(() -> {
+                while (consumedCount.get() < (long) threads * perProducer) {
+                    Long value = queue.poll();
+                    if (value == null) {
+                        Thread.yield();
+                        continue;
+                    }
+                    consumedSum.addAndGet(value);
+                    consumedCount.incrementAndGet();
+                }
+            }));
+        }
+
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        long total = (long) threads * perProducer;
+        assertEquals(total, consumedCount.get());
+        assertEquals(total * (total - 1) / 2, consumedSum.get());
+    }
+}
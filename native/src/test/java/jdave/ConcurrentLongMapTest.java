@@ -0,0 +1,65 @@
+package jdave;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import club.minnced.discord.jdave.utils.ConcurrentLongMap;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentLongMapTest {
+    @Test
+    void testMatchesHashMap() {
+        Random random = new Random(42);
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>();
+        Map<Long, String> expected = new HashMap<>();
+
+        // Small key space to get plenty of collisions, updates and removals
+        for (int i = 0; i < 10_000; i++) {
+            long key = random.nextInt(64) - 32;
+            switch (random.nextInt(3)) {
+                case 0 -> assertEquals(expected.put(key, "v" + i), map.put(key, "v" + i));
+                case 1 -> assertEquals(expected.remove(key), map.remove(key));
+                default ->
+                    assertEquals(
+                            expected.computeIfAbsent(key, k -> "c" + k), map.computeIfAbsent(key, k -> "c" + k));
+            }
+
+            assertEquals(expected.size(), map.size());
+            assertEquals(expected.get(key), map.get(key));
+        }
+
+        long[] keys = map.keys();
+        Arrays.sort(keys);
+        assertArrayEquals(expected.keySet().stream().mapToLong(k -> k).sorted().toArray(), keys);
+
+        map.forEach((key, value) -> assertEquals(expected.get(key), value));
+    }
+
+    @Test
+    void testComputeIfAbsentKeepsExisting() {
+        ConcurrentLongMap<Object> map = new ConcurrentLongMap<>();
+        Object first = map.computeIfAbsent(0, k -> new Object());
+
+        assertSame(first, map.computeIfAbsent(0, k -> new Object()));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void testClear() {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>();
+        for (long i = 0; i < 100; i++) {
+            map.put(i * 31, "v" + i);
+        }
+
+        assertEquals(100, map.clear().size());
+        assertTrue(map.isEmpty());
+        assertNull(map.get(31));
+    }
+}
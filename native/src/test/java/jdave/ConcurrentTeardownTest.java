@@ -0,0 +1,92 @@
+package jdave;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import club.minnced.discord.jdave.DaveConstants;
+import club.minnced.discord.jdave.DaveDecryptor;
+import club.minnced.discord.jdave.DaveDecryptor.DaveDecryptResultType;
+import club.minnced.discord.jdave.DaveMediaType;
+import club.minnced.discord.jdave.DaveSessionImpl;
+import club.minnced.discord.jdave.manager.DaveSessionManager;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentTeardownTest {
+    @Test
+    void testClosedDecryptorFailsFrames() {
+        Random random = new Random(42);
+        try (DaveSessionImpl session = DaveSessionImpl.create(null)) {
+            DaveDecryptor decryptor = DaveDecryptor.create(random.nextLong(), session);
+            decryptor.prepareTransition(DaveConstants.DISABLED_PROTOCOL_VERSION);
+            decryptor.close();
+            decryptor.close();
+
+            DaveDecryptor.DaveDecryptResult result = decryptor.decrypt(
+                    DaveMediaType.AUDIO, ByteBuffer.allocateDirect(64), ByteBuffer.allocateDirect(64));
+            assertEquals(DaveDecryptResultType.FAILURE, result.type());
+        }
+    }
+
+    @Test
+    void testRemoveUserWhileDecrypting() throws InterruptedException {
+        Random random = new Random(42);
+        long userId = random.nextLong();
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong successful = new AtomicLong();
+        List<Throwable> errors = new CopyOnWriteArrayList<>();
+
+        try (DaveSessionManager manager =
+                DaveSessionManager.create(random.nextLong(), random.nextLong(), new NoopCallbacks())) {
+            manager.onSelectProtocolAck(DaveConstants.DISABLED_PROTOCOL_VERSION);
+            manager.addUser(userId);
+
+            // Frames with a trailer hold a handle reference during the native call, where libdave rejects them for
+            // lack of keys. Unencrypted frames are copied in passthrough and show that decryptors were usable.
+            byte[] encryptedFrame = Frames.encryptedFrame(random, 128);
+            List<Thread> receivers = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                Thread receiver = new Thread(() -> {
+                    ByteBuffer[] frames = {Frames.directCopy(encryptedFrame), ByteBuffer.allocateDirect(128)};
+                    ByteBuffer output = ByteBuffer.allocateDirect(128);
+                    try {
+                        for (int n = 0; running.get(); n++) {
+                            output.clear();
+                            if (manager.decrypt(DaveMediaType.AUDIO, userId, frames[n & 1], output)
+                                    == DaveDecryptResultType.SUCCESS) {
+                                successful.incrementAndGet();
+                            }
+                            Thread.yield();
+                        }
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    }
+                });
+                receiver.start();
+                receivers.add(receiver);
+            }
+
+            // Every removal closes the decryptor while the receivers might be inside the native call
+            for (int i = 0; i < 2_000; i++) {
+                manager.removeUser(userId);
+                Thread.yield();
+                manager.addUser(userId);
+                Thread.yield();
+            }
+
+            running.set(false);
+            for (Thread receiver : receivers) {
+                receiver.join();
+            }
+        }
+
+        assertEquals(List.of(), errors);
+        assertTrue(successful.get() > 0);
+    }
+}
@@ -0,0 +1,80 @@
+package jdave;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import club.minnced.discord.jdave.utils.DaveBufferPool;
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+
+class DaveBufferPoolTest {
+    @Test
+    void testLeaseIsReused() {
+        try (DaveBufferPool pool = new DaveBufferPool()) {
+            DaveBufferPool.Lease first = pool.lease(1000);
+            assertEquals(1000, first.size());
+            assertEquals(1000, first.segment().byteSize());
+            assertEquals(1024, first.capacity());
+            assertEquals(1000, first.buffer().limit());
+            assertTrue(first.buffer().isDirect());
+
+            DaveBufferPool.Lease second = pool.lease(1000);
+            assertNotSame(first, second);
+            long address = first.segment().address();
+            first.close();
+
+            // Sizes of the same class share buffers
+            DaveBufferPool.Lease third = pool.lease(600);
+            assertSame(first, third);
+            assertEquals(600, third.size());
+            assertEquals(600, third.segment().byteSize());
+            assertEquals(address, third.segment().address());
+            assertSame(third.segment(), third.segment());
+            assertEquals(0, third.buffer().position());
+            assertEquals(600, third.buffer().limit());
+
+            second.close();
+            third.close();
+        }
+    }
+
+    @Test
+    void testDoubleRelease() {
+        try (DaveBufferPool pool = new DaveBufferPool()) {
+            DaveBufferPool.Lease lease = pool.lease(64);
+            lease.close();
+            assertThrows(IllegalStateException.class, lease::close);
+        }
+    }
+
+    @Test
+    void testOversizedLease() {
+        try (DaveBufferPool pool = new DaveBufferPool();
+                DaveBufferPool.Lease lease = pool.lease(4 << 20)) {
+            ByteBuffer buffer = lease.buffer();
+            buffer.putInt(buffer.limit() - 4, 42);
+            assertEquals(42, buffer.getInt(buffer.limit() - 4));
+        }
+    }
+
+    @Test
+    void testBuffersDoNotOverlap() {
+        try (DaveBufferPool pool = new DaveBufferPool()) {
+            DaveBufferPool.Lease[] leases = new DaveBufferPool.Lease[300];
+            for (int i = 0; i < leases.length; i++) {
+                leases[i] = pool.lease(256);
+                leases[i].segment().fill((byte) i);
+            }
+
+            for (int i = 0; i < leases.length; i++) {
+                ByteBuffer buffer = leases[i].buffer();
+                assertEquals((byte) i, buffer.get(0));
+                assertEquals((byte) i, buffer.get(255));
+                leases[i].close();
+            }
+        }
+    }
+}
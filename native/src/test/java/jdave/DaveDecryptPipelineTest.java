@@ -0,0 +1,114 @@
+package jdave;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import club.minnced.discord.jdave.DaveConstants;
+import club.minnced.discord.jdave.DaveDecryptor.DaveDecryptResultType;
+import club.minnced.discord.jdave.DaveMediaType;
+import club.minnced.discord.jdave.manager.DaveDecryptPipeline;
+import club.minnced.discord.jdave.manager.DaveSessionManager;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class DaveDecryptPipelineTest {
+    @Test
+    void testPerUserOrder() {
+        Random random = new Random(42);
+        int users = 8;
+        int framesPerUser = 500;
+
+        Map<Long, Long> lastSequence = new ConcurrentHashMap<>();
+        List<String> errors = new CopyOnWriteArrayList<>();
+        AtomicInteger decrypted = new AtomicInteger();
+
+        try (DaveSessionManager manager =
+                DaveSessionManager.create(random.nextLong(), random.nextLong(), new NoopCallbacks())) {
+            manager.onSelectProtocolAck(DaveConstants.DISABLED_PROTOCOL_VERSION);
+
+            long[] userIds = new long[users];
+            for (int i = 0; i < users; i++) {
+                userIds[i] = random.nextLong();
+                manager.addUser(userIds[i]);
+            }
+
+            DaveDecryptPipeline pipeline = DaveDecryptPipeline.builder(
+                            manager, (type, userId, encrypted, output, result) -> {
+                                if (result != DaveDecryptResultType.SUCCESS) {
+                                    errors.add("Failed to decrypt frame of " + userId);
+                                    return;
+                                }
+
+                                long sequence = output.getLong(0);
+                                Long previous = lastSequence.put(userId, sequence);
+                                if (previous != null && previous + 1 != sequence) {
+                                    errors.add("Frame " + sequence + " of " + userId + " after " + previous);
+                                }
+                                decrypted.incrementAndGet();
+                            })
+                    .setWorkers(3)
+                    .setQueueCapacity(16)
+                    .setOverflowPolicy(DaveDecryptPipeline.OverflowPolicy.BLOCK)
+                    .build();
+
+            try (pipeline) {
+                for (long sequence = 0; sequence < framesPerUser; sequence++) {
+                    for (long userId : userIds) {
+                        ByteBuffer frame = ByteBuffer.allocateDirect(8).putLong(0, sequence);
+                        assertTrue(pipeline.submit(DaveMediaType.AUDIO, userId, frame, ByteBuffer.allocateDirect(8)));
+                    }
+                }
+            }
+
+            assertEquals(List.of(), errors);
+            assertEquals(users * framesPerUser, decrypted.get());
+            assertEquals(0, pipeline.getDroppedFrames());
+        }
+    }
+
+    @Test
+    void testDropWhenFull() throws InterruptedException {
+        Random random = new Random(42);
+        long userId = random.nextLong();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (DaveSessionManager manager =
+                DaveSessionManager.create(random.nextLong(), random.nextLong(), new NoopCallbacks())) {
+            DaveDecryptPipeline pipeline = DaveDecryptPipeline.builder(
+                            manager, (type, user, encrypted, output, result) -> {
+                                entered.countDown();
+                                try {
+                                    release.await();
+                                } catch (InterruptedException e) {
+                                    Thread.currentThread().interrupt();
+                                }
+                            })
+                    .setWorkers(1)
+                    .setQueueCapacity(1)
+                    .build();
+
+            try (pipeline) {
+                ByteBuffer frame = ByteBuffer.allocateDirect(8);
+                assertTrue(pipeline.submit(DaveMediaType.AUDIO, userId, frame, ByteBuffer.allocateDirect(8)));
+                entered.await();
+
+                // The worker is stuck in the callback, so the second frame fills the queue
+                assertTrue(pipeline.submit(DaveMediaType.AUDIO, userId, frame, ByteBuffer.allocateDirect(8)));
+                assertFalse(pipeline.submit(DaveMediaType.AUDIO, userId, frame, ByteBuffer.allocateDirect(8)));
+                assertEquals(1, pipeline.getDroppedFrames());
+                assertEquals(1, pipeline.getQueuedFrames());
+
+                release.countDown();
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package jdave;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import club.minnced.discord.jdave.DaveConstants;
+import club.minnced.discord.jdave.manager.DaveSessionManager;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DaveEventsTest {
+    private static final String MLS_OPERATION = "club.minnced.discord.jdave.MlsOperation";
+    private static final String TRANSITION = "club.minnced.discord.jdave.Transition";
+
+    @Test
+    void testControlPlaneEvents(@TempDir Path directory) throws IOException {
+        Random random = new Random(42);
+        long channelId = random.nextLong();
+        Path file = directory.resolve("events.jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable(MLS_OPERATION);
+            recording.enable(TRANSITION);
+            recording.start();
+
+            try (DaveSessionManager manager =
+                    DaveSessionManager.create(random.nextLong(), channelId, new NoopCallbacks())) {
+                manager.onSelectProtocolAck(DaveConstants.DISABLED_PROTOCOL_VERSION);
+                manager.onSelectProtocolAck(1);
+            }
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+
+        List<RecordedEvent> transitions = events.stream()
+                .filter(event -> event.getEventType().getName().equals(TRANSITION))
+                .toList();
+        assertEquals(1, transitions.size());
+        assertEquals(DaveConstants.INIT_TRANSITION_ID, transitions.getFirst().getInt("transitionId"));
+        assertEquals(channelId, transitions.getFirst().getLong("channelId"));
+
+        List<String> operations = events.stream()
+                .filter(event -> event.getEventType().getName().equals(MLS_OPERATION))
+                .map(event -> event.getString("operation"))
+                .toList();
+        assertTrue(operations.contains("initialize"), operations::toString);
+        assertTrue(operations.contains("sendMarshalledKeyPackage"), operations::toString);
+    }
+
+    @Test
+    void testTransitionsOfEarlierEpochsAreDiscarded(@TempDir Path directory) throws IOException {
+        Random random = new Random(42);
+        Path file = directory.resolve("events.jfr");
+        int transitionId = 5;
+
+        try (Recording recording = new Recording()) {
+            recording.enable(TRANSITION);
+            recording.start();
+
+            try (DaveSessionManager manager =
+                    DaveSessionManager.create(random.nextLong(), random.nextLong(), new NoopCallbacks())) {
+                manager.onSelectProtocolAck(DaveConstants.DISABLED_PROTOCOL_VERSION);
+                manager.onDaveProtocolPrepareTransition(transitionId, DaveConstants.DISABLED_PROTOCOL_VERSION);
+
+                // A new epoch supersedes the prepared transition, so its event is not kept until it executes
+                manager.onDaveProtocolPrepareEpoch(1, 1);
+                manager.onDaveProtocolExecuteTransition(transitionId);
+            }
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<Integer> transitionIds = RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals(TRANSITION))
+                .map(event -> event.getInt("transitionId"))
+                .toList();
+        assertEquals(List.of(DaveConstants.INIT_TRANSITION_ID), transitionIds);
+    }
+}
@@ -0,0 +1,71 @@
+package jdave;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import club.minnced.discord.jdave.DaveFrameClassifier;
+import club.minnced.discord.jdave.DaveFrameClassifier.DaveFrameType;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+
+class DaveFrameClassifierTest {
+    @Test
+    void testClassify() {
+        assertEquals(DaveFrameType.PASSTHROUGH, classify(new byte[0]));
+        assertEquals(DaveFrameType.PASSTHROUGH, classify(new byte[] {1, 2, 3, 4}));
+        assertEquals(DaveFrameType.PASSTHROUGH, classify(new byte[] {1, 2, 3, (byte) 0xFA}));
+        assertEquals(DaveFrameType.MALFORMED, classify(new byte[] {(byte) 0xFA, (byte) 0xFA}));
+
+        assertEquals(DaveFrameType.ENCRYPTED, classify(frame(20, 11)));
+        assertEquals(DaveFrameType.ENCRYPTED, classify(frame(20, 20)));
+        // Shorter than the tag, size byte, and marker
+        assertEquals(DaveFrameType.MALFORMED, classify(frame(20, 10)));
+        // Larger than the frame itself
+        assertEquals(DaveFrameType.MALFORMED, classify(frame(20, 21)));
+        // The size byte is unsigned
+        assertEquals(DaveFrameType.ENCRYPTED, classify(frame(300, 200)));
+    }
+
+    @Test
+    void testClassifyBufferRange() {
+        byte[] frame = frame(20, 11);
+        ByteBuffer buffer = ByteBuffer.allocate(frame.length + 8);
+        buffer.position(4).put(frame).flip().position(4);
+        assertEquals(DaveFrameType.ENCRYPTED, DaveFrameClassifier.classify(buffer));
+
+        // Only the bytes up to the limit are inspected
+        buffer.limit(buffer.limit() - 1);
+        assertEquals(DaveFrameType.PASSTHROUGH, DaveFrameClassifier.classify(buffer));
+
+        // The supplemental size counts from the position, not the start of the buffer
+        buffer.limit(4 + frame.length).position(4 + frame.length - 10);
+        assertEquals(DaveFrameType.MALFORMED, DaveFrameClassifier.classify(buffer));
+    }
+
+    @Test
+    void testOpusSilence() {
+        byte[] silence = {(byte) 0xF8, (byte) 0xFF, (byte) 0xFE};
+        assertTrue(DaveFrameClassifier.isOpusSilence(MemorySegment.ofArray(silence)));
+        assertEquals(DaveFrameType.PASSTHROUGH, classify(silence));
+
+        assertFalse(DaveFrameClassifier.isOpusSilence(MemorySegment.ofArray(new byte[] {(byte) 0xF8, (byte) 0xFF})));
+        byte[] longer = {(byte) 0xF8, (byte) 0xFF, (byte) 0xFE, 0};
+        assertFalse(DaveFrameClassifier.isOpusSilence(MemorySegment.ofArray(longer)));
+    }
+
+    private static byte[] frame(int size, int supplementalSize) {
+        byte[] frame = new byte[size];
+        frame[size - 3] = (byte) supplementalSize;
+        frame[size - 2] = (byte) 0xFA;
+        frame[size - 1] = (byte) 0xFA;
+        return frame;
+    }
+
+    private static DaveFrameType classify(byte[] frame) {
+        DaveFrameType type = DaveFrameClassifier.classify(MemorySegment.ofArray(frame));
+        assertEquals(type, DaveFrameClassifier.classify(ByteBuffer.wrap(frame)));
+        return type;
+    }
+}
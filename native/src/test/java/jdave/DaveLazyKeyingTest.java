@@ -0,0 +1,105 @@
+package jdave;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import club.minnced.discord.jdave.DaveConstants;
+import club.minnced.discord.jdave.DaveDecryptor.DaveDecryptResultType;
+import club.minnced.discord.jdave.DaveMediaType;
+import club.minnced.discord.jdave.manager.DaveSessionManager;
+import club.minnced.discord.jdave.metrics.DaveFailureCause;
+import club.minnced.discord.jdave.metrics.DaveMetricsCollector;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class DaveLazyKeyingTest {
+    @Test
+    void testDecryptorCreatedOnFirstFrame() {
+        Random random = new Random(42);
+        long speaker = random.nextLong();
+        long listener = random.nextLong();
+        List<Runnable> tasks = new ArrayList<>();
+        DaveMetricsCollector metrics = DaveMetricsCollector.create(null);
+
+        try (DaveSessionManager manager =
+                DaveSessionManager.create(random.nextLong(), random.nextLong(), new NoopCallbacks())) {
+            manager.setMetrics(metrics);
+            manager.setTransitionExecutor(tasks::add);
+            manager.setLazyKeying(true);
+            manager.onSelectProtocolAck(DaveConstants.DISABLED_PROTOCOL_VERSION);
+            manager.addUser(speaker);
+            manager.addUser(listener);
+            assertTrue(tasks.isEmpty());
+
+            // The first frame only requests the decryptor, which is keyed by a control-plane task
+            assertEquals(DaveDecryptResultType.FAILURE, decrypt(manager, speaker));
+            assertEquals(DaveDecryptResultType.FAILURE, decrypt(manager, speaker));
+            assertEquals(1, tasks.size());
+            tasks.removeFirst().run();
+            assertEquals(DaveDecryptResultType.SUCCESS, decrypt(manager, speaker));
+
+            manager.warmupUser(listener);
+            tasks.removeFirst().run();
+            assertEquals(DaveDecryptResultType.SUCCESS, decrypt(manager, listener));
+            assertEquals(DaveDecryptResultType.FAILURE, decrypt(manager, random.nextLong()));
+
+            manager.removeUser(listener);
+            assertEquals(DaveDecryptResultType.FAILURE, decrypt(manager, listener));
+            assertTrue(tasks.isEmpty());
+        }
+
+        assertEquals(2, metrics.snapshot().decryptFailures().get(DaveFailureCause.KEY_PENDING).longValue());
+    }
+
+    @Test
+    void testRemovedBeforeKeying() {
+        Random random = new Random(42);
+        long userId = random.nextLong();
+        List<Runnable> tasks = new ArrayList<>();
+
+        try (DaveSessionManager manager =
+                DaveSessionManager.create(random.nextLong(), random.nextLong(), new NoopCallbacks())) {
+            manager.setTransitionExecutor(tasks::add);
+            manager.setLazyKeying(true);
+            manager.onSelectProtocolAck(DaveConstants.DISABLED_PROTOCOL_VERSION);
+            manager.addUser(userId);
+
+            // A request that outlives its member does not create a decryptor
+            manager.warmupUser(userId);
+            manager.removeUser(userId);
+            tasks.removeFirst().run();
+            assertEquals(DaveDecryptResultType.FAILURE, decrypt(manager, userId));
+            assertTrue(tasks.isEmpty());
+        }
+    }
+
+    @Test
+    void testFramesNeverKeyInline() {
+        Random random = new Random(42);
+        long userId = random.nextLong();
+
+        try (DaveSessionManager manager =
+                DaveSessionManager.create(random.nextLong(), random.nextLong(), new NoopCallbacks())) {
+            manager.setTransitionExecutor(Runnable::run);
+            manager.setLazyKeying(true);
+            manager.onSelectProtocolAck(DaveConstants.DISABLED_PROTOCOL_VERSION);
+            manager.addUser(userId);
+
+            // A caller-runs executor would derive the key on the receiving thread, so frames only keep requesting it
+            assertEquals(DaveDecryptResultType.FAILURE, decrypt(manager, userId));
+            assertEquals(DaveDecryptResultType.FAILURE, decrypt(manager, userId));
+
+            // Requests from the control plane may run inline
+            manager.warmupUser(userId);
+            assertEquals(DaveDecryptResultType.SUCCESS, decrypt(manager, userId));
+        }
+    }
+
+    private static DaveDecryptResultType decrypt(DaveSessionManager manager, long userId) {
+        return manager.decrypt(
+                DaveMediaType.AUDIO, userId, ByteBuffer.allocateDirect(64), ByteBuffer.allocateDirect(64));
+    }
+}
@@ -0,0 +1,63 @@
+package jdave;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import club.minnced.discord.jdave.DaveCodec;
+import club.minnced.discord.jdave.DaveConstants;
+import club.minnced.discord.jdave.DaveMediaType;
+import club.minnced.discord.jdave.manager.DaveSessionManager;
+import club.minnced.discord.jdave.metrics.DaveFailureCause;
+import club.minnced.discord.jdave.metrics.DaveLatencyHistogram;
+import club.minnced.discord.jdave.metrics.DaveMetricsCollector;
+import club.minnced.discord.jdave.metrics.DaveMetricsSnapshot;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class DaveMetricsTest {
+    @Test
+    void testSessionMetrics() {
+        Random random = new Random(42);
+        DaveMetricsCollector parent = DaveMetricsCollector.create(null);
+        DaveMetricsCollector metrics = DaveMetricsCollector.create(parent);
+
+        try (DaveSessionManager manager =
+                DaveSessionManager.create(random.nextLong(), random.nextLong(), new NoopCallbacks())) {
+            manager.setMetrics(metrics);
+            manager.onSelectProtocolAck(DaveConstants.DISABLED_PROTOCOL_VERSION);
+
+            int ssrc = random.nextInt();
+            manager.assignSsrcToCodec(DaveCodec.OPUS, ssrc);
+
+            ByteBuffer frame = ByteBuffer.allocateDirect(100);
+            ByteBuffer output = ByteBuffer.allocateDirect(100);
+            manager.encrypt(DaveMediaType.AUDIO, ssrc, frame, output);
+            output.clear();
+            manager.decrypt(DaveMediaType.AUDIO, random.nextLong(), frame, output);
+        }
+
+        for (DaveMetricsSnapshot snapshot : new DaveMetricsSnapshot[] {metrics.snapshot(), parent.snapshot()}) {
+            assertEquals(1, snapshot.framesEncrypted());
+            assertEquals(1, snapshot.framesEncryptedPassthrough());
+            assertEquals(100, snapshot.bytesEncryptedIn());
+            assertEquals(100, snapshot.bytesEncryptedOut());
+            assertEquals(1, snapshot.encryptLatency().count());
+            assertEquals(0, snapshot.framesDecrypted());
+            assertEquals(1, snapshot.decryptFailures().get(DaveFailureCause.UNKNOWN_USER).longValue());
+        }
+    }
+
+    @Test
+    void testLatencyPercentiles() {
+        DaveLatencyHistogram histogram = new DaveLatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(1_000);
+        }
+        histogram.record(1_000_000);
+
+        DaveLatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(100, snapshot.count());
+        assertEquals(1024, snapshot.percentileNanos(0.5));
+        assertEquals(1 << 20, snapshot.percentileNanos(1.0));
+    }
+}
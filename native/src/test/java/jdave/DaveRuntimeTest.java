@@ -0,0 +1,38 @@
+package jdave;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import club.minnced.discord.jdave.manager.DaveRuntime;
+import club.minnced.discord.jdave.manager.DaveSessionManager;
+import club.minnced.discord.jdave.metrics.DaveMetricsCollector;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class DaveRuntimeTest {
+    @Test
+    void testSessionLimitAndRegistry() {
+        Random random = new Random(42);
+        try (DaveRuntime runtime = DaveRuntime.builder()
+                .setMaxSessions(2)
+                .setMetricsParent(DaveMetricsCollector.create(null))
+                .build()) {
+            DaveSessionManager first = runtime.createSession(random.nextLong(), random.nextLong(), new NoopCallbacks());
+            runtime.createSession(random.nextLong(), random.nextLong(), new NoopCallbacks());
+            assertEquals(2, runtime.getSessionCount());
+            assertNotNull(runtime.getMetrics());
+
+            assertThrows(
+                    IllegalStateException.class,
+                    () -> runtime.createSession(random.nextLong(), random.nextLong(), new NoopCallbacks()));
+
+            first.close();
+            assertEquals(1, runtime.getSessionCount());
+            runtime.createSession(random.nextLong(), random.nextLong(), new NoopCallbacks());
+
+            runtime.closeAll();
+            assertEquals(0, runtime.getSessionCount());
+        }
+    }
+}
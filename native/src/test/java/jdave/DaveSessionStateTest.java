@@ -0,0 +1,51 @@
+package jdave;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import club.minnced.discord.jdave.DaveConstants;
+import club.minnced.discord.jdave.manager.DaveSessionManager;
+import club.minnced.discord.jdave.manager.DaveSessionState;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class DaveSessionStateTest {
+    @Test
+    void testInitialState() {
+        Random random = new Random(42);
+        try (DaveSessionManager manager =
+                DaveSessionManager.create(random.nextLong(), random.nextLong(), new NoopCallbacks())) {
+            DaveSessionState initial = manager.getState();
+            assertEquals(DaveConstants.DISABLED_PROTOCOL_VERSION, initial.protocolVersion());
+            assertTrue(initial.passthrough());
+            assertTrue(initial.pendingTransitions().isEmpty());
+
+            manager.onSelectProtocolAck(DaveConstants.DISABLED_PROTOCOL_VERSION);
+
+            DaveSessionState state = manager.getState();
+            assertEquals(DaveConstants.DISABLED_PROTOCOL_VERSION, state.protocolVersion());
+            assertTrue(state.passthrough());
+            assertNull(state.getPendingProtocolVersion(DaveConstants.INIT_TRANSITION_ID));
+
+            // Snapshots are never modified, so a reader can keep using the one it loaded
+            assertSame(state, manager.getState());
+        }
+    }
+
+    @Test
+    void testPendingTransitionsAreCopied() {
+        Map<Integer, Integer> pending = new HashMap<>();
+        pending.put(1, 1);
+        DaveSessionState state = new DaveSessionState(1, 2, false, pending);
+        pending.put(2, 1);
+
+        assertEquals(1, state.pendingTransitions().size());
+        assertEquals(1, (int) state.getPendingProtocolVersion(1));
+        assertThrows(UnsupportedOperationException.class, () -> state.pendingTransitions().put(3, 1));
+    }
+}
@@ -0,0 +1,106 @@
+package jdave;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import club.minnced.discord.jdave.DaveConstants;
+import club.minnced.discord.jdave.DaveDecryptor.DaveDecryptResultType;
+import club.minnced.discord.jdave.DaveMediaType;
+import club.minnced.discord.jdave.manager.DaveSessionManager;
+import club.minnced.discord.jdave.metrics.DaveFailureCause;
+import club.minnced.discord.jdave.metrics.DaveMetricsCollector;
+import club.minnced.discord.jdave.metrics.DaveMetricsSnapshot;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class DaveSubscriptionTest {
+    @Test
+    void testUnsubscribedFramesAreDropped() {
+        Random random = new Random(42);
+        long speaker = random.nextLong();
+        long listener = random.nextLong();
+        DaveMetricsCollector metrics = DaveMetricsCollector.create(null);
+
+        try (DaveSessionManager manager =
+                DaveSessionManager.create(random.nextLong(), random.nextLong(), new NoopCallbacks())) {
+            manager.setMetrics(metrics);
+            // Keys users on the subscribing thread, so their frames are decrypted right after subscribing
+            manager.setTransitionExecutor(Runnable::run);
+            manager.onSelectProtocolAck(DaveConstants.DISABLED_PROTOCOL_VERSION);
+            manager.addUser(speaker);
+            manager.addUser(listener);
+
+            manager.unsubscribe(listener);
+            assertFalse(manager.isSubscribed(listener));
+            assertEquals(DaveDecryptResultType.SUCCESS, decrypt(manager, speaker));
+            assertEquals(DaveDecryptResultType.FAILURE, decrypt(manager, listener));
+
+            manager.subscribe(listener);
+            assertEquals(DaveDecryptResultType.SUCCESS, decrypt(manager, listener));
+        }
+
+        DaveMetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(3, snapshot.framesDecrypted());
+        assertEquals(1, snapshot.decryptFailures().get(DaveFailureCause.UNSUBSCRIBED).longValue());
+    }
+
+    @Test
+    void testSubscribeByDefault() {
+        Random random = new Random(42);
+        long commander = random.nextLong();
+        long bystander = random.nextLong();
+
+        try (DaveSessionManager manager =
+                DaveSessionManager.create(random.nextLong(), random.nextLong(), new NoopCallbacks())) {
+            // Keys users on the subscribing thread, so their frames are decrypted right after subscribing
+            manager.setTransitionExecutor(Runnable::run);
+            manager.onSelectProtocolAck(DaveConstants.DISABLED_PROTOCOL_VERSION);
+            manager.setSubscribeByDefault(false);
+            manager.subscribe(commander);
+
+            manager.addUser(commander);
+            manager.addUser(bystander);
+            assertTrue(manager.isSubscribed(commander));
+            assertFalse(manager.isSubscribed(bystander));
+            assertEquals(DaveDecryptResultType.SUCCESS, decrypt(manager, commander));
+            assertEquals(DaveDecryptResultType.FAILURE, decrypt(manager, bystander));
+
+            // Users that were never keyed while unsubscribed are keyed once the default changes
+            manager.setSubscribeByDefault(true);
+            assertEquals(DaveDecryptResultType.SUCCESS, decrypt(manager, bystander));
+        }
+    }
+
+    @Test
+    void testSubscribeKeysOnControlPlane() {
+        Random random = new Random(42);
+        long userId = random.nextLong();
+        List<Runnable> tasks = new ArrayList<>();
+
+        try (DaveSessionManager manager =
+                DaveSessionManager.create(random.nextLong(), random.nextLong(), new NoopCallbacks())) {
+            manager.setTransitionExecutor(tasks::add);
+            manager.onSelectProtocolAck(DaveConstants.DISABLED_PROTOCOL_VERSION);
+            manager.setSubscribeByDefault(false);
+            manager.addUser(userId);
+
+            // The subscription applies right away, the key is only derived by the control-plane task
+            manager.subscribe(userId);
+            assertTrue(manager.isSubscribed(userId));
+            assertEquals(1, tasks.size());
+            assertEquals(DaveDecryptResultType.FAILURE, decrypt(manager, userId));
+
+            tasks.removeFirst().run();
+            assertEquals(DaveDecryptResultType.SUCCESS, decrypt(manager, userId));
+        }
+    }
+
+    private static DaveDecryptResultType decrypt(DaveSessionManager manager, long userId) {
+        return manager.decrypt(
+                DaveMediaType.AUDIO, userId, ByteBuffer.allocateDirect(64), ByteBuffer.allocateDirect(64));
+    }
+}
@@ -0,0 +1,25 @@
+package jdave;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+final class Frames {
+    private Frames() {}
+
+    // Random ciphertext followed by a trailer libdave parses: an 8-byte tag, a zero nonce, no unencrypted ranges,
+    // the supplemental size and the magic marker. Without an MLS group there are no keys, so libdave rejects these
+    // frames, but only after they went through the native decryptor.
+    static byte[] encryptedFrame(Random random, int size) {
+        byte[] frame = new byte[size];
+        random.nextBytes(frame);
+        frame[size - 4] = 0;
+        frame[size - 3] = 12;
+        frame[size - 2] = (byte) 0xFA;
+        frame[size - 1] = (byte) 0xFA;
+        return frame;
+    }
+
+    static ByteBuffer directCopy(byte[] frame) {
+        return ByteBuffer.allocateDirect(frame.length).put(frame).flip();
+    }
+}
@@ -1,9 +1,23 @@
 package jdave;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import club.minnced.discord.jdave.ffi.LibDaveBindingException;
 import club.minnced.discord.jdave.utils.NativeLibraryLoader;
 import club.minnced.discord.jdave.utils.NativeLibraryLoader.NativeLibrary;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 
@@ -21,4 +35,64 @@ class NativeLibraryLoaderTest {
 
         assertEquals(resourcePath, library.resourcePath());
     }
+
+    @Test
+    void extractToCache(@TempDir Path cacheDirectory) throws IOException {
+        byte[] expected;
+        try (InputStream resource = NativeLibraryLoader.class.getResourceAsStream(
+                NativeLibraryLoader.getNativeLibrary().resourcePath())) {
+            expected = resource.readAllBytes();
+        }
+
+        Path libraryFile = NativeLibraryLoader.extractToCache(cacheDirectory);
+        assertArrayEquals(expected, Files.readAllBytes(libraryFile));
+
+        // A valid copy is reused, a corrupted one is replaced
+        assertEquals(libraryFile, NativeLibraryLoader.extractToCache(cacheDirectory));
+        Files.write(libraryFile, new byte[] {1, 2, 3});
+        assertEquals(libraryFile, NativeLibraryLoader.extractToCache(cacheDirectory));
+        assertArrayEquals(expected, Files.readAllBytes(libraryFile));
+    }
+
+    @Test
+    void extractToCacheDeletesStaleEntries(@TempDir Path cacheDirectory) throws IOException {
+        Path stale = cacheDirectory.resolve("0".repeat(64));
+        Path recent = cacheDirectory.resolve("1".repeat(64));
+        Path unrelated = cacheDirectory.resolve("unrelated");
+        for (Path directory : new Path[] {stale, recent, unrelated}) {
+            Files.createDirectories(directory);
+            Files.write(directory.resolve("libdave"), new byte[] {0});
+        }
+
+        FileTime old = FileTime.from(Instant.now().minus(Duration.ofDays(30)));
+        Files.setLastModifiedTime(stale, old);
+        Files.setLastModifiedTime(unrelated, old);
+
+        Path libraryFile = NativeLibraryLoader.extractToCache(cacheDirectory);
+
+        assertTrue(Files.exists(libraryFile));
+        assertFalse(Files.exists(stale));
+        assertTrue(Files.exists(recent));
+        assertTrue(Files.exists(unrelated));
+    }
+
+    @Test
+    void selectProviderByProperty() {
+        try {
+            assertEquals("bundled", NativeLibraryLoader.getProvider().getName());
+
+            System.setProperty(NativeLibraryLoader.PROVIDER_PROPERTY, "system");
+            assertEquals("system", NativeLibraryLoader.getProvider().getName());
+
+            System.setProperty(NativeLibraryLoader.PROVIDER_PROPERTY, "unknown");
+            assertThrows(LibDaveBindingException.class, NativeLibraryLoader::getProvider);
+
+            // An explicit path takes precedence over the provider name
+            System.setProperty(NativeLibraryLoader.LIBRARY_PATH_PROPERTY, "/opt/libdave/libdave.so");
+            assertEquals("path", NativeLibraryLoader.getProvider().getName());
+        } finally {
+            System.clearProperty(NativeLibraryLoader.PROVIDER_PROPERTY);
+            System.clearProperty(NativeLibraryLoader.LIBRARY_PATH_PROPERTY);
+        }
+    }
 }
@@ -0,0 +1,18 @@
+package jdave;
+
+import club.minnced.discord.jdave.manager.DaveSessionManagerCallbacks;
+import java.nio.ByteBuffer;
+
+class NoopCallbacks implements DaveSessionManagerCallbacks {
+    @Override
+    public void sendMLSKeyPackage(ByteBuffer mlsKeyPackage) {}
+
+    @Override
+    public void sendDaveProtocolReadyForTransition(int transitionId) {}
+
+    @Override
+    public void sendMLSCommitWelcome(ByteBuffer commitWelcomeMessage) {}
+
+    @Override
+    public void sendMLSInvalidCommitWelcome(int transitionId) {}
+}
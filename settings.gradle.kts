@@ -1,3 +1,3 @@
 rootProject.name = "jdave"
 
-include("api", "native")
+include("api", "native", "benchmarks")